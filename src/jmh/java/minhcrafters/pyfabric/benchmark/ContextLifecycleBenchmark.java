@@ -0,0 +1,51 @@
+package minhcrafters.pyfabric.benchmark;
+
+import minhcrafters.pyfabric.python.ContextPool;
+import org.graalvm.polyglot.Context;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of getting a usable Python context: a private engine per context (cold) vs the pool's shared engine (warm).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ContextLifecycleBenchmark {
+    private ContextPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = new ContextPool(1, 0);
+        // Create one context up front so the shared engine has loaded and compiled the core modules.
+        try (Context context = pool.newContextBuilder().build()) {
+            context.eval("python", "1");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public int coldContext() {
+        try (Context context = Context.newBuilder("python")
+                .allowExperimentalOptions(true)
+                .option("engine.WarnInterpreterOnly", "false")
+                .option("python.ForceImportSite", "true")
+                .option("python.EmulateJython", "true")
+                .allowAllAccess(true)
+                .build()) {
+            return context.eval("python", "1").asInt();
+        }
+    }
+
+    @Benchmark
+    public int warmContext() {
+        try (Context context = pool.newContextBuilder().build()) {
+            return context.eval("python", "1").asInt();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package minhcrafters.pyfabric.benchmark;
+
+import minhcrafters.pyfabric.python.ContextPool;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Per-call overhead of guest code calling @HostAccess.Export methods shaped like the mc API.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HostCallBenchmark {
+    private static final int CALLS = 1000;
+
+    private ContextPool pool;
+    private Context context;
+    private StubApi api;
+    private Value callNoArgs;
+    private Value callInts;
+    private Value callString;
+    private Value callIntArray;
+
+    public static class StubApi {
+        private long counter;
+
+        @HostAccess.Export
+        public void noop() {
+            counter++;
+        }
+
+        @HostAccess.Export
+        public int get_block_state_id(int x, int y, int z) {
+            return x ^ y ^ z;
+        }
+
+        @HostAccess.Export
+        public int log_info(String message) {
+            return message.length();
+        }
+
+        @HostAccess.Export
+        public int set_blocks(int[] coords) {
+            return coords.length / 3;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = new ContextPool(1, 0);
+        context = pool.newContextBuilder().build();
+        api = new StubApi();
+        context.getBindings("python").putMember("mc", api);
+        context.eval("python", """
+                def call_no_args(n):
+                    for i in range(n):
+                        mc.noop()
+
+                def call_ints(n):
+                    for i in range(n):
+                        mc.get_block_state_id(i, 64, i)
+
+                def call_string(n):
+                    for i in range(n):
+                        mc.log_info('hello')
+
+                coords = [0] * 48
+                def call_int_array(n):
+                    for i in range(n):
+                        mc.set_blocks(coords)
+                """);
+        Value bindings = context.getBindings("python");
+        callNoArgs = bindings.getMember("call_no_args");
+        callInts = bindings.getMember("call_ints");
+        callString = bindings.getMember("call_string");
+        callIntArray = bindings.getMember("call_int_array");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        pool.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void noArgs() {
+        callNoArgs.executeVoid(CALLS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void intArgs() {
+        callInts.executeVoid(CALLS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void stringArg() {
+        callString.executeVoid(CALLS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void intArrayArg() {
+        callIntArray.executeVoid(CALLS);
+    }
+
+    // Rebinding mc the way every script run does.
+    @Benchmark
+    public void bindApi() {
+        context.getBindings("python").putMember("mc", api);
+    }
+}
@@ -0,0 +1,118 @@
+package minhcrafters.pyfabric.benchmark;
+
+import minhcrafters.pyfabric.api.Position;
+import minhcrafters.pyfabric.python.ContextPool;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Position results as the old boxed HashMap, the Position proxy get_player_pos returns, and a plain double[].
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PositionMarshallingBenchmark {
+    private static final int CALLS = 1000;
+
+    private ContextPool pool;
+    private Context context;
+    private Value readMap;
+    private Value readPosition;
+    private Value readArray;
+
+    static Map<String, Double> posToMap(double x, double y, double z) {
+        Map<String, Double> result = new HashMap<>();
+        result.put("x", x);
+        result.put("y", y);
+        result.put("z", z);
+        return result;
+    }
+
+    public static class StubApi {
+        @HostAccess.Export
+        public Map<String, Double> get_player_pos_map(String name) {
+            return posToMap(12.5, 64.0, -3.25);
+        }
+
+        @HostAccess.Export
+        public Position get_player_pos(String name) {
+            return new Position(12.5, 64.0, -3.25);
+        }
+
+        @HostAccess.Export
+        public double[] get_player_pos_array(String name) {
+            return new double[]{12.5, 64.0, -3.25};
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = new ContextPool(1, 0);
+        context = pool.newContextBuilder().build();
+        context.getBindings("python").putMember("mc", new StubApi());
+        context.eval("python", """
+                def read_map(n):
+                    total = 0.0
+                    for i in range(n):
+                        pos = mc.get_player_pos_map('Steve')
+                        total += pos['x'] + pos['y'] + pos['z']
+                    return total
+
+                def read_position(n):
+                    total = 0.0
+                    for i in range(n):
+                        pos = mc.get_player_pos('Steve')
+                        total += pos['x'] + pos['y'] + pos['z']
+                    return total
+
+                def read_array(n):
+                    total = 0.0
+                    for i in range(n):
+                        pos = mc.get_player_pos_array('Steve')
+                        total += pos[0] + pos[1] + pos[2]
+                    return total
+                """);
+        Value bindings = context.getBindings("python");
+        readMap = bindings.getMember("read_map");
+        readPosition = bindings.getMember("read_position");
+        readArray = bindings.getMember("read_array");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        pool.close();
+    }
+
+    @Benchmark
+    public Map<String, Double> buildMap() {
+        return posToMap(12.5, 64.0, -3.25);
+    }
+
+    @Benchmark
+    public Position buildPosition() {
+        return new Position(12.5, 64.0, -3.25);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public double mapFromGuest() {
+        return readMap.execute(CALLS).asDouble();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public double positionFromGuest() {
+        return readPosition.execute(CALLS).asDouble();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public double arrayFromGuest() {
+        return readArray.execute(CALLS).asDouble();
+    }
+}
@@ -0,0 +1,54 @@
+package minhcrafters.pyfabric.benchmark;
+
+import minhcrafters.pyfabric.python.ContextPool;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Running the same script text via a kept parse result, a rebuilt Source, and a Source that bypasses the parse cache.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScriptEvalBenchmark {
+    private static final String SCRIPT = """
+            total = 0
+            for i in range(200):
+                total += i * i
+            total
+            """;
+
+    private ContextPool pool;
+    private Context context;
+    private Value parsed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = new ContextPool(1, 0);
+        context = pool.newContextBuilder().build();
+        parsed = context.parse(Source.newBuilder("python", SCRIPT, "bench.py").buildLiteral());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        pool.close();
+    }
+
+    @Benchmark
+    public long cachedParse() {
+        return parsed.execute().asLong();
+    }
+
+    @Benchmark
+    public long freshSource() {
+        return context.eval(Source.newBuilder("python", SCRIPT, "bench.py").buildLiteral()).asLong();
+    }
+
+    @Benchmark
+    public long uncachedSource() {
+        return context.eval(Source.newBuilder("python", SCRIPT, "bench.py").cached(false).buildLiteral()).asLong();
+    }
+}
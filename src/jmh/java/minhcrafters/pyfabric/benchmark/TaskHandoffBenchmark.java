@@ -0,0 +1,65 @@
+package minhcrafters.pyfabric.benchmark;
+
+import minhcrafters.pyfabric.server.ScriptTaskQueue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Round trip of a script thread handing work to the server thread and waiting for it. A stand-in thread drives
+// the task queue with short "ticks" instead of a MinecraftServer; the executor variant is the lower bound.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskHandoffBenchmark {
+    @Param({"0", "1000"})
+    public long tickIntervalMicros;
+
+    private ScriptTaskQueue taskQueue;
+    private Thread serverThread;
+    private volatile boolean running;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        taskQueue = new ScriptTaskQueue(4096, 5_000, 500, 50, 10_000);
+        taskQueue.start();
+        running = true;
+        serverThread = new Thread(() -> {
+            while (running) {
+                taskQueue.startTick();
+                if (tickIntervalMicros > 0) {
+                    LockSupport.parkNanos(tickIntervalMicros * 1_000L);
+                }
+                taskQueue.endTick();
+            }
+        }, "Benchmark-ServerThread");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        running = false;
+        serverThread.join();
+        taskQueue.stop();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer taskQueueSubmitJoin() throws ExecutionException, InterruptedException {
+        return taskQueue.submit(() -> 42).get();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer executorSubmitJoin() {
+        return CompletableFuture.supplyAsync(() -> 42, executor).join();
+    }
+}
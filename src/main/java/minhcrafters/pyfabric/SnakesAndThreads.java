@@ -1,10 +1,22 @@
 package minhcrafters.pyfabric;
 
+import minhcrafters.pyfabric.api.BlockStateCache;
+import minhcrafters.pyfabric.api.EditHistory;
 import minhcrafters.pyfabric.command.Command;
+import minhcrafters.pyfabric.config.PyFabricConfig;
+import minhcrafters.pyfabric.event.ScriptEventBus;
+import minhcrafters.pyfabric.metrics.MetricsRegistry;
 import minhcrafters.pyfabric.python.PythonInterpreter;
+import minhcrafters.pyfabric.python.ScriptJob;
+import minhcrafters.pyfabric.server.ScriptOutputPump;
+import minhcrafters.pyfabric.server.ScriptScheduler;
+import minhcrafters.pyfabric.server.ScriptSocketEndpoint;
+import minhcrafters.pyfabric.server.ScriptTaskQueue;
+import minhcrafters.pyfabric.store.ScriptStore;
 import net.fabricmc.api.ModInitializer;
 
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerChunkEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.minecraft.server.MinecraftServer;
 import org.slf4j.Logger;
@@ -14,26 +26,74 @@ public class SnakesAndThreads implements ModInitializer {
     public static final String MOD_ID = "pyfabric";
     public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
 
+    private static PyFabricConfig config;
     private static PythonInterpreter pythonInterpreter;
+    private static ScriptTaskQueue scriptTaskQueue;
+    private static ScriptEventBus scriptEventBus;
+    private static ScriptScheduler scriptScheduler;
+    private static ScriptOutputPump scriptOutputPump;
+    private static EditHistory editHistory;
+    private static BlockStateCache blockStateCache;
+    private static ScriptStore scriptStore;
+    private static ScriptSocketEndpoint scriptSocketEndpoint;
+    private static final MetricsRegistry metrics = new MetricsRegistry();
     private static MinecraftServer minecraftServer = null;
 
     @Override
     public void onInitialize() {
-        pythonInterpreter = new PythonInterpreter();
+        config = PyFabricConfig.load();
+        pythonInterpreter = new PythonInterpreter(config);
+        scriptTaskQueue = new ScriptTaskQueue(config);
+        scriptTaskQueue.register();
+        scriptEventBus = new ScriptEventBus(config);
+        scriptEventBus.register();
+        scriptOutputPump = new ScriptOutputPump(config);
+        scriptOutputPump.register();
+        editHistory = new EditHistory(config.getUndoHistorySize());
+        blockStateCache = new BlockStateCache(config.getBlockCacheSize());
+        ServerChunkEvents.CHUNK_UNLOAD.register((world, chunk) -> blockStateCache.invalidateChunk(world, chunk.getPos()));
+        scriptScheduler = new ScriptScheduler(SnakesAndThreads::getPythonInterpreter);
+        scriptScheduler.load();
+        scriptScheduler.register();
+        scriptSocketEndpoint = new ScriptSocketEndpoint(config, SnakesAndThreads::getPythonInterpreter);
+        MetricsRegistry.registerExecutorStats(event -> {
+            event.queuedScripts = pythonInterpreter.getJobCount(ScriptJob.State.QUEUED);
+            event.activeScripts = pythonInterpreter.getJobCount(ScriptJob.State.RUNNING);
+            event.queuedServerTasks = scriptTaskQueue.getQueueDepth();
+            event.tickBudget = scriptTaskQueue.getCurrentBudgetMicros();
+        });
 
         LOGGER.info("Hello Fabric world!");
+        pythonInterpreter.initAsync();
 
         ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
             LOGGER.info("Server stopping, shutting down Python...");
+            scriptSocketEndpoint.stop();
+            scriptTaskQueue.stop();
+            scriptEventBus.clear();
+            scriptOutputPump.clear();
+            editHistory.clear();
+            blockStateCache.clear();
             if (pythonInterpreter != null) {
                 pythonInterpreter.close();
             }
+            // Scripts are stopped by now; closing forces the mapped log to disk before the JVM may exit.
+            if (scriptStore != null) {
+                scriptStore.close();
+                scriptStore = null;
+            }
             minecraftServer = null;
         });
 
+        // Opened per server rather than at mod load: onInitialize also runs on clients, which never use the store.
+        ServerLifecycleEvents.SERVER_STARTING.register(server -> scriptStore = ScriptStore.open(config));
+
         ServerLifecycleEvents.SERVER_STARTED.register(server -> {
             minecraftServer = server;
-            pythonInterpreter.init();
+            scriptTaskQueue.start();
+            // Already started at mod load; only re-initializes after a previous server in this JVM closed it.
+            pythonInterpreter.initAsync();
+            scriptSocketEndpoint.start(server);
             LOGGER.info("Server started, MinecraftServer instance captured.");
         });
 
@@ -48,7 +108,43 @@ public class SnakesAndThreads implements ModInitializer {
         minecraftServer = server;
     }
 
+    public static PyFabricConfig getConfig() {
+        return config;
+    }
+
     public static PythonInterpreter getPythonInterpreter() {
         return pythonInterpreter;
     }
+
+    public static ScriptTaskQueue getScriptTaskQueue() {
+        return scriptTaskQueue;
+    }
+
+    public static ScriptEventBus getScriptEventBus() {
+        return scriptEventBus;
+    }
+
+    public static ScriptOutputPump getScriptOutputPump() {
+        return scriptOutputPump;
+    }
+
+    public static EditHistory getEditHistory() {
+        return editHistory;
+    }
+
+    public static BlockStateCache getBlockStateCache() {
+        return blockStateCache;
+    }
+
+    public static ScriptStore getScriptStore() {
+        return scriptStore;
+    }
+
+    public static ScriptScheduler getScriptScheduler() {
+        return scriptScheduler;
+    }
+
+    public static MetricsRegistry getMetrics() {
+        return metrics;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package minhcrafters.pyfabric.api;
+
+import org.graalvm.polyglot.HostAccess;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class ApiFuture<T> {
+    private final CompletableFuture<T> future;
+
+    ApiFuture(CompletableFuture<T> future) {
+        this.future = future;
+    }
+
+    @HostAccess.Export
+    public boolean done() {
+        return future.isDone();
+    }
+
+    @HostAccess.Export
+    public T result() {
+        return MinecraftAPI.awaitServerResult(future);
+    }
+
+    @HostAccess.Export
+    public T result(long timeoutMillis) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out after " + timeoutMillis + " ms waiting for server thread result");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for server thread result", e);
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new RuntimeException(cause);
+    }
+}
@@ -0,0 +1,193 @@
+package minhcrafters.pyfabric.api;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.block.BlockState;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.World;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Read-through cache of block states behind get_block and get_block_state_id, shared by all scripts. Entries are
+// filled on the server thread by the read that missed and dropped when the block changes (WorldChunkMixin) or its
+// chunk unloads, so a hit is the current state and is answered on the script thread without a server-thread hop.
+// Concurrent misses for the same block share one server-thread read.
+public class BlockStateCache {
+    private record ReadKey(RegistryKey<World> world, long pos) {
+    }
+
+    private final int capacityPerWorld;
+    private final Map<RegistryKey<World>, Segment<BlockState>> segments = new ConcurrentHashMap<>();
+    private final Map<ReadKey, CompletableFuture<BlockState>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong mergedReads = new AtomicLong();
+
+    public BlockStateCache(int capacityPerWorld) {
+        this.capacityPerWorld = capacityPerWorld;
+    }
+
+    public boolean isEnabled() {
+        return capacityPerWorld > 0;
+    }
+
+    BlockState get(RegistryKey<World> world, long pos) {
+        Segment<BlockState> segment = segments.get(world);
+        BlockState state = segment == null ? null : segment.get(pos);
+        if (state != null) {
+            hits.incrementAndGet();
+        }
+        return state;
+    }
+
+    // Server thread only, with the state just read from a loaded chunk.
+    void put(RegistryKey<World> world, long pos, BlockState state) {
+        segments.computeIfAbsent(world, key -> new Segment<>(capacityPerWorld)).put(pos, state);
+    }
+
+    // Starts a read through the given supplier unless the same block is already being read. Each caller gets its own
+    // copy of the shared future, so cancelling one wait does not cancel the read for the others.
+    CompletableFuture<BlockState> load(RegistryKey<World> world, long pos, Supplier<CompletableFuture<BlockState>> reader) {
+        misses.incrementAndGet();
+        ReadKey key = new ReadKey(world, pos);
+        CompletableFuture<BlockState> pending = new CompletableFuture<>();
+        CompletableFuture<BlockState> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            mergedReads.incrementAndGet();
+            return existing.copy();
+        }
+        try {
+            reader.get().whenComplete((state, error) -> {
+                inFlight.remove(key, pending);
+                if (error != null) {
+                    pending.completeExceptionally(error);
+                } else {
+                    pending.complete(state);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, pending);
+            pending.completeExceptionally(e);
+        }
+        return pending.copy();
+    }
+
+    // Called from WorldChunk.setBlockState on the server thread, so it has to stay cheap.
+    public void invalidate(World world, BlockPos pos) {
+        if (capacityPerWorld <= 0) {
+            return;
+        }
+        Segment<BlockState> segment = segments.get(world.getRegistryKey());
+        if (segment != null) {
+            segment.remove(pos.asLong());
+        }
+    }
+
+    public void invalidateChunk(World world, ChunkPos chunkPos) {
+        if (capacityPerWorld <= 0) {
+            return;
+        }
+        Segment<BlockState> segment = segments.get(world.getRegistryKey());
+        if (segment != null) {
+            segment.removeChunk(chunkPos.x, chunkPos.z);
+        }
+    }
+
+    public void clear() {
+        segments.clear();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<BlockState> segment : segments.values()) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getMergedReads() {
+        return mergedReads.get();
+    }
+
+    // One dimension, in least-recently-used order. The positions are also indexed by chunk, so a chunk unload only
+    // touches that chunk's entries.
+    static class Segment<V> {
+        private final int capacity;
+        private final Long2ObjectLinkedOpenHashMap<V> states = new Long2ObjectLinkedOpenHashMap<>();
+        private final Long2ObjectOpenHashMap<LongOpenHashSet> positionsByChunk = new Long2ObjectOpenHashMap<>();
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized V get(long pos) {
+            return states.getAndMoveToLast(pos);
+        }
+
+        synchronized void put(long pos, V state) {
+            if (states.putAndMoveToLast(pos, state) == null) {
+                positionsByChunk.computeIfAbsent(chunkKey(pos), key -> new LongOpenHashSet()).add(pos);
+            }
+            if (states.size() > capacity) {
+                long eldest = states.firstLongKey();
+                states.removeFirst();
+                unindex(eldest);
+            }
+        }
+
+        synchronized void remove(long pos) {
+            if (!states.isEmpty() && states.remove(pos) != null) {
+                unindex(pos);
+            }
+        }
+
+        synchronized void removeChunk(int chunkX, int chunkZ) {
+            LongOpenHashSet positions = positionsByChunk.remove(ChunkPos.toLong(chunkX, chunkZ));
+            if (positions == null) {
+                return;
+            }
+            LongIterator iterator = positions.iterator();
+            while (iterator.hasNext()) {
+                states.remove(iterator.nextLong());
+            }
+        }
+
+        private void unindex(long pos) {
+            long chunk = chunkKey(pos);
+            LongOpenHashSet positions = positionsByChunk.get(chunk);
+            if (positions != null && positions.remove(pos) && positions.isEmpty()) {
+                positionsByChunk.remove(chunk);
+            }
+        }
+
+        private static long chunkKey(long pos) {
+            return ChunkPos.toLong(ChunkSectionPos.getSectionCoord(BlockPos.unpackLongX(pos)),
+                    ChunkSectionPos.getSectionCoord(BlockPos.unpackLongZ(pos)));
+        }
+
+        synchronized int size() {
+            return states.size();
+        }
+
+        synchronized int indexedChunks() {
+            return positionsByChunk.size();
+        }
+    }
+}
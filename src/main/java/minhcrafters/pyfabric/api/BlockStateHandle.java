@@ -0,0 +1,36 @@
+package minhcrafters.pyfabric.api;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import org.graalvm.polyglot.HostAccess;
+
+public class BlockStateHandle {
+    private final String id;
+    private final BlockState state;
+    private final int stateId;
+
+    BlockStateHandle(String id, BlockState state) {
+        this.id = id;
+        this.state = state;
+        this.stateId = Block.getRawIdFromState(state);
+    }
+
+    public BlockState getState() {
+        return state;
+    }
+
+    @HostAccess.Export
+    public String id() {
+        return id;
+    }
+
+    @HostAccess.Export
+    public int state_id() {
+        return stateId;
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
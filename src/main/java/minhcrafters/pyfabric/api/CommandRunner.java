@@ -0,0 +1,56 @@
+package minhcrafters.pyfabric.api;
+
+import com.mojang.brigadier.ParseResults;
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+
+// Runs commands for one script's command source and keeps the Brigadier parse results of recent command strings, so
+// a repeated command is executed without parsing it again. Server thread only.
+class CommandRunner {
+    // Result code of a command that did not report a result, e.g. because it could not be parsed.
+    static final int NO_RESULT = -1;
+
+    private final ServerCommandSource source;
+    private final int cacheSize;
+    private final Object2ObjectLinkedOpenHashMap<String, ParseResults<ServerCommandSource>> parsed = new Object2ObjectLinkedOpenHashMap<>();
+    // /reload replaces the command tree; parse results from the old one are dropped.
+    private CommandManager parsedBy;
+
+    CommandRunner(ServerCommandSource source, int cacheSize) {
+        this.source = source;
+        this.cacheSize = cacheSize;
+    }
+
+    // Returns the command's result value, 0 if it failed, or NO_RESULT.
+    int run(MinecraftServer server, String command) {
+        String stripped = command.startsWith("/") ? command.substring(1) : command;
+        CommandManager manager = server.getCommandManager();
+        int[] result = {NO_RESULT};
+        // The cached parse is bound to the plain source; each run rebinds it to one that records the result.
+        ParseResults<ServerCommandSource> bound = CommandManager.withCommandSource(parse(manager, stripped),
+                s -> s.withReturnValueConsumer((successful, value) -> result[0] = successful ? value : 0));
+        manager.execute(bound, stripped);
+        return result[0];
+    }
+
+    private ParseResults<ServerCommandSource> parse(CommandManager manager, String command) {
+        if (manager != parsedBy) {
+            parsed.clear();
+            parsedBy = manager;
+        }
+        if (cacheSize <= 0) {
+            return manager.getDispatcher().parse(command, source);
+        }
+        ParseResults<ServerCommandSource> results = parsed.getAndMoveToLast(command);
+        if (results == null) {
+            results = manager.getDispatcher().parse(command, source);
+            parsed.putAndMoveToLast(command, results);
+            if (parsed.size() > cacheSize) {
+                parsed.removeFirst();
+            }
+        }
+        return results;
+    }
+}
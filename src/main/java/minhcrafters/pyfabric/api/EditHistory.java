@@ -0,0 +1,50 @@
+package minhcrafters.pyfabric.api;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+// The most recent committed edit sessions per owner (the name of the command source that ran the script), newest
+// first. Only touched on the server thread.
+public class EditHistory {
+    private final int maxPerOwner;
+    private final Map<String, Deque<EditJournal>> journals = new HashMap<>();
+
+    public EditHistory(int maxPerOwner) {
+        this.maxPerOwner = maxPerOwner;
+    }
+
+    void push(EditJournal journal) {
+        if (maxPerOwner <= 0 || journal.getSize() == 0) {
+            return;
+        }
+        Deque<EditJournal> ownerJournals = journals.computeIfAbsent(journal.getOwner(), owner -> new ArrayDeque<>());
+        ownerJournals.addFirst(journal);
+        while (ownerJournals.size() > maxPerOwner) {
+            ownerJournals.removeLast();
+        }
+    }
+
+    // The journal pop would return, left in place, so a failed undo keeps it for another try.
+    public EditJournal peek(String owner) {
+        Deque<EditJournal> ownerJournals = journals.get(owner);
+        return ownerJournals == null ? null : ownerJournals.peekFirst();
+    }
+
+    public EditJournal pop(String owner) {
+        Deque<EditJournal> ownerJournals = journals.get(owner);
+        if (ownerJournals == null) {
+            return null;
+        }
+        EditJournal journal = ownerJournals.pollFirst();
+        if (ownerJournals.isEmpty()) {
+            journals.remove(owner);
+        }
+        return journal;
+    }
+
+    public void clear() {
+        journals.clear();
+    }
+}
@@ -0,0 +1,165 @@
+package minhcrafters.pyfabric.api;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Undo journal of one committed edit session: the packed position and prior raw state id of every block the session
+// changed, in the order it changed them, plus the saved data of block entities (chest contents, sign text) it
+// replaced. Entities are not recorded. Only touched on the server thread.
+public class EditJournal {
+    // Clients are told about the change, but neighbor and shape updates are left to the deferred pass.
+    private static final int SET_FLAGS = Block.NOTIFY_LISTENERS | Block.FORCE_STATE;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
+
+    private final int id = NEXT_ID.getAndIncrement();
+    private final String owner;
+    private final WorldHandle world;
+    private final boolean updateNeighbors;
+    private long[] positions;
+    private int[] priorStates;
+    // By journal index; only the few changed blocks that had a block entity have an entry.
+    private final Int2ObjectOpenHashMap<NbtCompound> priorBlockEntities = new Int2ObjectOpenHashMap<>();
+    private int size = 0;
+
+    EditJournal(String owner, WorldHandle world, boolean updateNeighbors, int expectedSize) {
+        this.owner = owner;
+        this.world = world;
+        this.updateNeighbors = updateNeighbors;
+        this.positions = new long[Math.min(expectedSize, INITIAL_CAPACITY)];
+        this.priorStates = new int[positions.length];
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getWorldId() {
+        return world.id();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // Writes states[from, to) at positions[from, to). Positions are expected to be sorted by chunk section.
+    void apply(ServerWorld serverWorld, long[] packedPositions, int[] states, int from, int to) {
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        WorldChunk chunk = null;
+        for (int i = from; i < to; i++) {
+            pos.set(packedPositions[i]);
+            if (serverWorld.isOutOfHeightLimit(pos)) continue;
+            chunk = chunkAt(serverWorld, chunk, pos);
+            if (chunk == null) continue;
+
+            BlockState state = Block.STATE_IDS.get(states[i]);
+            BlockState prior = chunk.getBlockState(pos);
+            if (state == null || prior == state) continue;
+            // Saved before the write, which removes the old block entity.
+            NbtCompound blockEntityData = null;
+            if (prior.hasBlockEntity()) {
+                BlockEntity blockEntity = chunk.getBlockEntity(pos);
+                if (blockEntity != null) {
+                    blockEntityData = blockEntity.createNbtWithIdentifyingData(serverWorld.getRegistryManager());
+                }
+            }
+            if (serverWorld.setBlockState(pos, state, SET_FLAGS)) {
+                if (blockEntityData != null) {
+                    priorBlockEntities.put(size, blockEntityData);
+                }
+                record(packedPositions[i], Block.getRawIdFromState(prior));
+            }
+        }
+    }
+
+    // The deferred pass: one round of neighbor and shape updates over everything the session changed, run after all
+    // writes so intermediate states never cascade.
+    void finish(ServerWorld serverWorld) {
+        if (updateNeighbors) {
+            updateNeighbors(serverWorld, positions, size);
+        }
+        positions = LongArrays.trim(positions, size);
+        priorStates = IntArrays.trim(priorStates, size);
+    }
+
+    // Restores the prior states newest first, followed by the same deferred pass. Returns -1 if the world is gone.
+    public int revert(MinecraftServer server) {
+        ServerWorld serverWorld = world.resolve(server);
+        if (serverWorld == null) return -1;
+
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        WorldChunk chunk = null;
+        int reverted = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            pos.set(positions[i]);
+            chunk = chunkAt(serverWorld, chunk, pos);
+            BlockState prior = Block.STATE_IDS.get(priorStates[i]);
+            if (chunk != null && prior != null && serverWorld.setBlockState(pos, prior, SET_FLAGS)) {
+                restoreBlockEntity(serverWorld, pos, prior, priorBlockEntities.get(i));
+                reverted++;
+            }
+        }
+        if (updateNeighbors) {
+            updateNeighbors(serverWorld, positions, size);
+        }
+        return reverted;
+    }
+
+    private static void restoreBlockEntity(ServerWorld serverWorld, BlockPos pos, BlockState state, NbtCompound data) {
+        if (data == null) return;
+        BlockEntity blockEntity = serverWorld.getBlockEntity(pos);
+        if (blockEntity == null) return;
+        blockEntity.read(data, serverWorld.getRegistryManager());
+        blockEntity.markDirty();
+        serverWorld.updateListeners(pos, state, state, Block.NOTIFY_LISTENERS);
+    }
+
+    private void record(long pos, int priorState) {
+        if (size == positions.length) {
+            positions = LongArrays.grow(positions, size + 1);
+            priorStates = IntArrays.grow(priorStates, size + 1);
+        }
+        positions[size] = pos;
+        priorStates[size] = priorState;
+        size++;
+    }
+
+    private static void updateNeighbors(ServerWorld serverWorld, long[] packedPositions, int count) {
+        for (int i = 0; i < count; i++) {
+            // Immutable on purpose: the neighbor updater queues positions and processes them later.
+            BlockPos pos = BlockPos.fromLong(packedPositions[i]);
+            if (!serverWorld.isChunkLoaded(ChunkSectionPos.getSectionCoord(pos.getX()), ChunkSectionPos.getSectionCoord(pos.getZ()))) {
+                continue;
+            }
+            BlockState state = serverWorld.getBlockState(pos);
+            serverWorld.updateNeighbors(pos, state.getBlock());
+            state.updateNeighbors(serverWorld, pos, Block.NOTIFY_LISTENERS);
+            state.prepare(serverWorld, pos, Block.NOTIFY_LISTENERS);
+        }
+    }
+
+    private static WorldChunk chunkAt(ServerWorld serverWorld, WorldChunk cached, BlockPos pos) {
+        int chunkX = ChunkSectionPos.getSectionCoord(pos.getX());
+        int chunkZ = ChunkSectionPos.getSectionCoord(pos.getZ());
+        if (cached != null && cached.getPos().x == chunkX && cached.getPos().z == chunkZ) {
+            return cached;
+        }
+        return serverWorld.getChunkManager().getWorldChunk(chunkX, chunkZ);
+    }
+}
@@ -0,0 +1,166 @@
+package minhcrafters.pyfabric.api;
+
+import it.unimi.dsi.fastutil.Arrays;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import org.graalvm.polyglot.HostAccess;
+
+// Collects block writes on the script thread and applies them in one go, sorted by chunk section. Writes to the
+// same position are merged, the last one wins. A session belongs to the script that created it and is not shared.
+public class EditSession {
+    private final MinecraftAPI api;
+    private final WorldHandle world;
+    private final boolean updateNeighbors;
+    private final int maxEdits;
+    private final Long2IntOpenHashMap edits = new Long2IntOpenHashMap();
+    private boolean closed = false;
+
+    EditSession(MinecraftAPI api, WorldHandle world, boolean updateNeighbors, int maxEdits) {
+        this.api = api;
+        this.world = world;
+        this.updateNeighbors = updateNeighbors;
+        this.maxEdits = maxEdits;
+    }
+
+    @HostAccess.Export
+    public String world() {
+        return world.id();
+    }
+
+    @HostAccess.Export
+    public int size() {
+        return edits.size();
+    }
+
+    @HostAccess.Export
+    public boolean set(int x, int y, int z, String blockIdStr) {
+        BlockStateHandle block = Handles.blockState(blockIdStr);
+        if (block == null) {
+            api.log_error("Invalid or unknown block ID: " + blockIdStr);
+            return false;
+        }
+        return put(x, y, z, block.state_id());
+    }
+
+    @HostAccess.Export
+    public boolean set(int x, int y, int z, BlockStateHandle block) {
+        return block != null && put(x, y, z, block.state_id());
+    }
+
+    @HostAccess.Export
+    public boolean set_state_id(int x, int y, int z, int stateId) {
+        if (Block.STATE_IDS.get(stateId) == null) {
+            api.log_error("Unknown block state id: " + stateId);
+            return false;
+        }
+        return put(x, y, z, stateId);
+    }
+
+    @HostAccess.Export
+    public int fill(int x1, int y1, int z1, int x2, int y2, int z2, String blockIdStr) {
+        BlockStateHandle block = Handles.blockState(blockIdStr);
+        if (block == null) {
+            api.log_error("Invalid or unknown block ID: " + blockIdStr);
+            return 0;
+        }
+        int minX = Math.min(x1, x2), minY = Math.min(y1, y2), minZ = Math.min(z1, z2);
+        int maxX = Math.max(x1, x2), maxY = Math.max(y1, y2), maxZ = Math.max(z1, z2);
+        long volume = MinecraftAPI.regionVolume(x1, y1, z1, x2, y2, z2);
+        if (volume > maxEdits - edits.size()) {
+            api.log_error("Edit session fill of " + volume + " blocks exceeds the limit of " + maxEdits + " blocks.");
+            return 0;
+        }
+        int stateId = block.state_id();
+        int added = 0;
+        // Counted loops: x <= maxX never ends when maxX is Integer.MAX_VALUE.
+        int sizeX = maxX - minX + 1, sizeY = maxY - minY + 1, sizeZ = maxZ - minZ + 1;
+        for (int dy = 0; dy < sizeY; dy++) {
+            for (int dz = 0; dz < sizeZ; dz++) {
+                for (int dx = 0; dx < sizeX; dx++) {
+                    if (put(minX + dx, minY + dy, minZ + dz, stateId)) added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    @HostAccess.Export
+    public int commit() {
+        return commit(0);
+    }
+
+    // Returns the number of blocks that changed. Unloaded positions and writes that match the current state are skipped.
+    @HostAccess.Export
+    public int commit(int batchSize) {
+        if (!checkOpen()) return 0;
+        closed = true;
+        int count = edits.size();
+        if (count == 0) return 0;
+
+        long[] positions = new long[count];
+        int[] states = new int[count];
+        long[] sectionKeys = new long[count];
+        int i = 0;
+        for (Long2IntMap.Entry edit : edits.long2IntEntrySet()) {
+            long pos = edit.getLongKey();
+            positions[i] = pos;
+            states[i] = edit.getIntValue();
+            sectionKeys[i] = ChunkSectionPos.asLong(
+                    ChunkSectionPos.getSectionCoord(BlockPos.unpackLongX(pos)),
+                    ChunkSectionPos.getSectionCoord(BlockPos.unpackLongY(pos)),
+                    ChunkSectionPos.getSectionCoord(BlockPos.unpackLongZ(pos)));
+            i++;
+        }
+        edits.clear();
+
+        // Sorting on the script thread means the server thread walks one chunk (and section) at a time.
+        Arrays.quickSort(0, count, (a, b) -> {
+            int bySection = Long.compare(sectionKeys[a], sectionKeys[b]);
+            return bySection != 0 ? bySection : Long.compare(positions[a], positions[b]);
+        }, (a, b) -> {
+            long section = sectionKeys[a];
+            sectionKeys[a] = sectionKeys[b];
+            sectionKeys[b] = section;
+            long pos = positions[a];
+            positions[a] = positions[b];
+            positions[b] = pos;
+            int state = states[a];
+            states[a] = states[b];
+            states[b] = state;
+        });
+        return api.applyEditSession(world, positions, states, updateNeighbors, batchSize);
+    }
+
+    @HostAccess.Export
+    public void discard() {
+        closed = true;
+        edits.clear();
+    }
+
+    private boolean put(int x, int y, int z, int stateId) {
+        if (!checkOpen()) return false;
+        long pos = BlockPos.asLong(x, y, z);
+        if (edits.size() >= maxEdits && !edits.containsKey(pos)) {
+            api.log_error("Edit session exceeds the limit of " + maxEdits + " blocks.");
+            return false;
+        }
+        edits.put(pos, stateId);
+        return true;
+    }
+
+    private boolean checkOpen() {
+        if (closed) {
+            api.log_error("Edit session for " + world.id() + " has already been committed or discarded.");
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "EditSession(" + world.id() + ", " + edits.size() + " edits)";
+    }
+}
@@ -0,0 +1,43 @@
+package minhcrafters.pyfabric.api;
+
+import org.graalvm.polyglot.HostAccess;
+
+// Columnar result of query_entities: entity i has ids[i], uuids[i], types[i] and coords[3*i .. 3*i+2].
+public class EntityQueryResult {
+    private final int[] ids;
+    private final String[] uuids;
+    private final String[] types;
+    private final double[] coords;
+
+    EntityQueryResult(int[] ids, String[] uuids, String[] types, double[] coords) {
+        this.ids = ids;
+        this.uuids = uuids;
+        this.types = types;
+        this.coords = coords;
+    }
+
+    @HostAccess.Export
+    public int count() {
+        return ids.length;
+    }
+
+    @HostAccess.Export
+    public int[] ids() {
+        return ids;
+    }
+
+    @HostAccess.Export
+    public String[] uuids() {
+        return uuids;
+    }
+
+    @HostAccess.Export
+    public String[] types() {
+        return types;
+    }
+
+    @HostAccess.Export
+    public double[] coords() {
+        return coords;
+    }
+}
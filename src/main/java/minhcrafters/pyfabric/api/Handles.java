@@ -0,0 +1,91 @@
+package minhcrafters.pyfabric.api;
+
+import minhcrafters.pyfabric.SnakesAndThreads;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.entity.EntityType;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.Identifier;
+import net.minecraft.world.World;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interning tables shared by all scripts, keyed by canonical identifier. Only ids that resolve to a block or an
+// existing dimension are interned, so the tables are bounded by the registries whatever strings scripts pass in. The
+// exact strings last seen are kept in a small table as well, so repeated lookups skip parsing.
+public final class Handles {
+    private static final int MAX_SPELLINGS = 1024;
+    private static final Map<Identifier, WorldHandle> WORLDS = new ConcurrentHashMap<>();
+    private static final Map<Identifier, BlockStateHandle> BLOCK_STATES = new ConcurrentHashMap<>();
+    private static final Map<String, WorldHandle> WORLD_SPELLINGS = new ConcurrentHashMap<>();
+    private static final Map<String, BlockStateHandle> BLOCK_STATE_SPELLINGS = new ConcurrentHashMap<>();
+    private static final Map<Block, String> BLOCK_IDS = new ConcurrentHashMap<>();
+    private static final Map<RegistryKey<World>, String> WORLD_IDS = new ConcurrentHashMap<>();
+    private static final Map<EntityType<?>, String> ENTITY_TYPE_IDS = new ConcurrentHashMap<>();
+
+    private Handles() {
+    }
+
+    // Returns null only for ids that do not parse. A well-formed id of a dimension the server does not have gets a
+    // fresh, uninterned handle, which resolves to no world.
+    public static WorldHandle world(String dimensionId) {
+        if (dimensionId == null) return null;
+        WorldHandle handle = WORLD_SPELLINGS.get(dimensionId);
+        if (handle != null) return handle;
+
+        Identifier identifier = Identifier.tryParse(dimensionId);
+        if (identifier == null) return null;
+        handle = WORLDS.get(identifier);
+        if (handle == null) {
+            handle = new WorldHandle(identifier.toString(), RegistryKey.of(RegistryKeys.WORLD, identifier));
+            MinecraftServer server = SnakesAndThreads.getMinecraftServer();
+            if (server == null || server.getWorld(handle.getKey()) == null) return handle;
+            WorldHandle interned = WORLDS.putIfAbsent(identifier, handle);
+            if (interned != null) handle = interned;
+        }
+        remember(WORLD_SPELLINGS, dimensionId, handle);
+        return handle;
+    }
+
+    public static BlockStateHandle blockState(String blockId) {
+        if (blockId == null) return null;
+        BlockStateHandle handle = BLOCK_STATE_SPELLINGS.get(blockId);
+        if (handle != null) return handle;
+
+        Identifier identifier = Identifier.tryParse(blockId);
+        if (identifier == null) return null;
+        handle = BLOCK_STATES.get(identifier);
+        if (handle == null) {
+            Optional<Block> block = Registries.BLOCK.getOptionalValue(identifier);
+            if (block.isEmpty()) return null;
+            handle = BLOCK_STATES.computeIfAbsent(identifier, id -> new BlockStateHandle(id.toString(), block.get().getDefaultState()));
+        }
+        remember(BLOCK_STATE_SPELLINGS, blockId, handle);
+        return handle;
+    }
+
+    // Scripts building ids on the fly could otherwise grow the table without limit; past the cap it starts over.
+    private static <T> void remember(Map<String, T> spellings, String spelling, T handle) {
+        if (spellings.size() >= MAX_SPELLINGS) {
+            spellings.clear();
+        }
+        spellings.put(spelling, handle);
+    }
+
+    public static String blockId(BlockState state) {
+        return BLOCK_IDS.computeIfAbsent(state.getBlock(), block -> Registries.BLOCK.getId(block).toString());
+    }
+
+    public static String worldId(RegistryKey<World> key) {
+        return WORLD_IDS.computeIfAbsent(key, worldKey -> worldKey.getValue().toString());
+    }
+
+    public static String entityTypeId(EntityType<?> type) {
+        return ENTITY_TYPE_IDS.computeIfAbsent(type, entityType -> Registries.ENTITY_TYPE.getId(entityType).toString());
+    }
+}
@@ -1,40 +1,128 @@
 package minhcrafters.pyfabric.api;
 
+import minhcrafters.pyfabric.SnakesAndThreads;
+import minhcrafters.pyfabric.metrics.ApiCallEvent;
+import minhcrafters.pyfabric.metrics.MetricsRegistry;
+import minhcrafters.pyfabric.metrics.ScriptMetrics;
+import minhcrafters.pyfabric.metrics.ScriptProfiler;
+import minhcrafters.pyfabric.python.ParallelWorkers;
+import minhcrafters.pyfabric.python.ResidentRun;
 import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
 import net.minecraft.entity.Entity;
-import net.minecraft.registry.RegistryKey;
-import net.minecraft.registry.RegistryKeys;
+import net.minecraft.entity.EntityType;
+import net.minecraft.registry.Registries;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
+import net.minecraft.util.TypeFilter;
+import net.minecraft.util.math.Box;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.Vec3d;
-import net.minecraft.world.World;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.PalettedContainer;
+import net.minecraft.world.chunk.WorldChunk;
 import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class MinecraftAPI {
     private static final Logger LOGGER = LoggerFactory.getLogger(MinecraftAPI.class);
 
+    public static final byte BULK_UNCHANGED = 0;
+    public static final byte BULK_CHANGED = 1;
+    public static final byte BULK_UNLOADED = -1;
+    private static final int MAX_BULK_BLOCKS = 1 << 22;
+    // Items per server-thread task when a bulk call passes batch_size 0, so one call cannot hold the server thread
+    // for many ticks. Commands can do arbitrary work each, so they get a smaller batch.
+    private static final int AUTO_BLOCK_BATCH = 4096;
+    private static final int AUTO_COMMAND_BATCH = 256;
+
     private final MinecraftServer server;
     private final ServerCommandSource commandSource;
+    private final String scriptName;
+    private final MetricsRegistry metrics;
+    private final ScriptMetrics scriptMetrics;
+    // Server-thread time of this run alone; the per-script total is shared by overlapping runs of the same script.
+    private final LongAdder serverThreadNanos = new LongAdder();
+    private final BlockStateCache blockCache;
+    private final CommandRunner commandRunner;
+    private final ResidentRun run;
+    @HostAccess.Export
+    public final StoreNamespace store;
 
-    public MinecraftAPI(MinecraftServer server, ServerCommandSource source) {
+    public MinecraftAPI(MinecraftServer server, ServerCommandSource source, String scriptName, ResidentRun run) {
         this.server = server;
         this.commandSource = source;
+        this.scriptName = scriptName;
+        this.metrics = SnakesAndThreads.getMetrics();
+        this.scriptMetrics = metrics.script(scriptName);
+        this.blockCache = SnakesAndThreads.getBlockStateCache();
+        this.commandRunner = new CommandRunner(source, SnakesAndThreads.getConfig().getCommandCacheSize());
+        this.store = new StoreNamespace(this, SnakesAndThreads.getScriptStore());
+        this.run = run;
+    }
+
+    public long getServerThreadNanos() {
+        return serverThreadNanos.sum();
+    }
+
+    // Records queue wait (from this call until the server thread picks the action up) and execution time.
+    private <T> Function<MinecraftServer, T> instrumented(String method, Function<MinecraftServer, T> action) {
+        ApiCallEvent event = new ApiCallEvent();
+        event.begin();
+        long enqueuedAt = System.nanoTime();
+        return s -> {
+            long startedAt = System.nanoTime();
+            try {
+                return action.apply(s);
+            } finally {
+                long executionNanos = System.nanoTime() - startedAt;
+                serverThreadNanos.add(executionNanos);
+                metrics.recordApiCall(method, scriptMetrics, event, startedAt - enqueuedAt, executionNanos);
+            }
+        };
+    }
+
+    // Attributes the time spent in a host call to that call in /pyprofile instead of to the calling Python frame.
+    private static <T> T profiled(String method, Supplier<T> call) {
+        ScriptProfiler profiler = ScriptProfiler.forCurrentThread();
+        if (profiler == null) {
+            return call.get();
+        }
+        ScriptProfiler.Mark previous = profiler.mark(ScriptProfiler.Phase.HOST, method);
+        try {
+            return call.get();
+        } finally {
+            profiler.restore(previous);
+        }
+    }
+
+    private <T> T runOnServerThreadSubmit(String method, Function<MinecraftServer, T> action) {
+        return profiled(method, () -> submitOnServerThread(method, action));
     }
 
-    private <T> T runOnServerThreadSubmit(Function<MinecraftServer, T> action) {
+    private <T> T submitOnServerThread(String method, Function<MinecraftServer, T> action) {
+        action = instrumented(method, action);
         if (server == null) {
             log_error("Cannot submit action to server thread: Server instance is null.");
             return null;
@@ -49,15 +137,7 @@ public class MinecraftAPI {
             }
         } else {
             try {
-                return server.submit(() -> {
-                    try {
-                        return action.apply(server);
-                    } catch (Exception e) {
-                        log_error("Exception during submitted server thread action: " + e.getMessage());
-                        LOGGER.error("Exception during submitted action:", e);
-                        throw new RuntimeException(e);
-                    }
-                }).join();
+                return awaitServerResult(queueOnServerThread(action));
             } catch (Exception e) {
                 log_error("Error submitting/joining server thread task: " + e.getMessage());
                 LOGGER.error("Error submitting/joining task:", e);
@@ -66,27 +146,101 @@ public class MinecraftAPI {
         }
     }
 
-    private void runOnServerThreadExecute(Consumer<MinecraftServer> action) {
+    private <T> ApiFuture<T> runOnServerThreadAsync(String method, Function<MinecraftServer, T> action) {
+        return profiled(method, () -> queueAsync(method, action));
+    }
+
+    private <T> ApiFuture<T> queueAsync(String method, Function<MinecraftServer, T> action) {
+        action = instrumented(method, action);
+        if (server == null) {
+            log_error("Cannot submit action to server thread: Server instance is null.");
+            return new ApiFuture<>(CompletableFuture.failedFuture(new IllegalStateException("MinecraftServer instance not available")));
+        }
+        if (server.isOnThread()) {
+            try {
+                return new ApiFuture<>(CompletableFuture.completedFuture(action.apply(server)));
+            } catch (Exception e) {
+                log_error("Exception executing action directly on server thread: " + e.getMessage());
+                LOGGER.error("Exception executing action directly:", e);
+                return new ApiFuture<>(CompletableFuture.failedFuture(e));
+            }
+        }
+        try {
+            return new ApiFuture<>(queueOnServerThread(action));
+        } catch (RejectedExecutionException e) {
+            log_error("Error queueing server thread task: " + e.getMessage());
+            return new ApiFuture<>(CompletableFuture.failedFuture(e));
+        }
+    }
+
+    // Waits interruptibly so that /pystop and the script time limit can free a thread blocked on the server.
+    static <T> T awaitServerResult(CompletableFuture<T> future) {
+        ScriptProfiler profiler = future.isDone() ? null : ScriptProfiler.forCurrentThread();
+        ScriptProfiler.Mark previous = profiler != null ? profiler.mark(ScriptProfiler.Phase.SERVER_WAIT, null) : null;
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw new CancellationException("Interrupted while waiting for the server thread");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : new RuntimeException(e.getCause());
+        } finally {
+            if (profiler != null) {
+                profiler.restore(previous);
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> queueOnServerThread(Function<MinecraftServer, T> action) {
+        return SnakesAndThreads.getScriptTaskQueue().submit(() -> {
+            try {
+                return action.apply(server);
+            } catch (Exception e) {
+                log_error("Exception during submitted server thread action: " + e.getMessage());
+                LOGGER.error("Exception during submitted action:", e);
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private void runOnServerThreadExecute(String method, Consumer<MinecraftServer> consumer) {
+        profiled(method, () -> {
+            executeOnServerThread(method, consumer);
+            return null;
+        });
+    }
+
+    private void executeOnServerThread(String method, Consumer<MinecraftServer> consumer) {
+        Function<MinecraftServer, Void> action = instrumented(method, s -> {
+            consumer.accept(s);
+            return null;
+        });
         if (server == null) {
             log_error("Cannot execute action on server thread: Server instance is null.");
             return;
         }
         if (server.isOnThread()) {
             try {
-                action.accept(server);
+                action.apply(server);
             } catch (Exception e) {
                 log_error("Exception executing action directly on server thread: " + e.getMessage());
                 LOGGER.error("Exception executing action directly:", e);
             }
         } else {
-            server.execute(() -> {
-                try {
-                    action.accept(server);
-                } catch (Exception e) {
-                    log_error("Exception during executed server thread action: " + e.getMessage());
-                    LOGGER.error("Exception during executed action:", e);
-                }
-            });
+            try {
+                SnakesAndThreads.getScriptTaskQueue().execute(() -> {
+                    try {
+                        action.apply(server);
+                    } catch (Exception e) {
+                        log_error("Exception during executed server thread action: " + e.getMessage());
+                        LOGGER.error("Exception during executed action:", e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                log_error("Error queueing server thread action: " + e.getMessage());
+                throw e;
+            }
         }
     }
 
@@ -106,18 +260,23 @@ public class MinecraftAPI {
     }
 
     @HostAccess.Export
+    // Queued and merged with other chat messages into one broadcast per tick.
     public void send_chat(String message) {
-        runOnServerThreadExecute(s -> {
-            s.getPlayerManager().broadcast(Text.literal(message), false);
-        });
+        if (server == null) {
+            log_error("Cannot send chat: Server instance is null.");
+            return;
+        }
+        if (!SnakesAndThreads.getScriptOutputPump().queueChat(message)) {
+            LOGGER.debug("Chat message from {} dropped: chat buffer full", scriptName);
+        }
     }
 
     @HostAccess.Export
     public void run_command(String command) {
-        runOnServerThreadExecute(s -> {
+        runOnServerThreadExecute("run_command", s -> {
             LOGGER.info("[PythonScript] Executing command via API: /{} (Source: {})", command, commandSource.getName());
             try {
-                s.getCommandManager().executeWithPrefix(commandSource, command);
+                commandRunner.run(s, command);
             } catch (Exception e) {
                 log_error("Error executing command '/" + command + "': " + e.getMessage());
                 LOGGER.error("Exception executing command '{}':", command, e);
@@ -126,122 +285,495 @@ public class MinecraftAPI {
     }
 
     @HostAccess.Export
-    public Map<String, Double> get_player_pos(String playerName) {
-        return runOnServerThreadSubmit(s -> {
-            ServerPlayerEntity player = s.getPlayerManager().getPlayer(playerName);
-            if (player != null) {
-                return entityPosToMap(player);
-            } else {
-                log_error("Player not found: " + playerName);
-                return null;
+    public int[] run_commands(String[] commands) {
+        return run_commands(commands, 0);
+    }
+
+    // Runs the commands in order and returns one result code per command: the command's result value, 0 if it
+    // failed, -1 if it did not run (unknown command, syntax error). The list is split into server-thread tasks of
+    // batchSize commands, or AUTO_COMMAND_BATCH if batchSize is 0.
+    @HostAccess.Export
+    public int[] run_commands(String[] commands, int batchSize) {
+        if (commands == null) {
+            log_error("run_commands expects a list of commands.");
+            return null;
+        }
+        int[] result = new int[commands.length];
+        Arrays.fill(result, CommandRunner.NO_RESULT);
+        LOGGER.info("[PythonScript] Executing {} command(s) via API (Source: {})", commands.length, commandSource.getName());
+        runBatched("run_commands", commands.length, batchSize, AUTO_COMMAND_BATCH, (s, from, to) -> {
+            for (int i = from; i < to; i++) {
+                try {
+                    result[i] = commandRunner.run(s, commands[i]);
+                } catch (Exception e) {
+                    log_error("Error executing command '/" + commands[i] + "': " + e.getMessage());
+                    LOGGER.error("Exception executing command '{}':", commands[i], e);
+                }
             }
+            return true;
         });
+        return result;
     }
 
+    // Template with {} placeholders, e.g. mc.prepare_command("give {} diamond {}").run("Steve", 5).
     @HostAccess.Export
-    public String get_player_dimension(String playerName) {
-        return runOnServerThreadSubmit(s -> {
-            ServerPlayerEntity player = s.getPlayerManager().getPlayer(playerName);
-            if (player != null && player.getWorld() != null) {
-                return player.getWorld().getRegistryKey().getValue().toString();
-            } else if (player == null) {
-                log_error("Player not found: " + playerName);
-            } else {
-                log_error("Player " + playerName + " has null world reference.");
-            }
+    public PreparedCommand prepare_command(String template) {
+        if (template == null || template.isBlank()) {
+            log_error("prepare_command expects a command template.");
             return null;
-        });
+        }
+        return PreparedCommand.of(this, template);
+    }
+
+    @HostAccess.Export
+    public Value parallel_map(Value function, Value items) {
+        return parallel_map(function, items, 0);
+    }
+
+    // Maps a pure function over items on worker threads and returns the results in order. chunk_size <= 0 picks one.
+    @HostAccess.Export
+    public Value parallel_map(Value function, Value items, int chunkSize) {
+        ParallelWorkers workers = SnakesAndThreads.getPythonInterpreter().getParallelWorkers();
+        if (workers == null) {
+            log_error("parallel_map is not available: the Python engine is not running.");
+            return null;
+        }
+        return workers.map(function, items, chunkSize);
+    }
+
+    @HostAccess.Export
+    public Position get_player_pos(String playerName) {
+        return runOnServerThreadSubmit("get_player_pos", s -> queryPlayerPos(s, playerName));
+    }
+
+    @HostAccess.Export
+    public ApiFuture<Position> get_player_pos_async(String playerName) {
+        return runOnServerThreadAsync("get_player_pos_async", s -> queryPlayerPos(s, playerName));
+    }
+
+    // Writes x, y, z into out[offset..offset+2] (a list, array.array('d') or Java double[]) without creating a result
+    // object. Returns False if the player is not online.
+    @HostAccess.Export
+    public boolean get_player_pos_into(String playerName, Value out, int offset) {
+        if (out == null || !out.hasArrayElements() || offset < 0 || offset + 3 > out.getArraySize()) {
+            throw new IllegalArgumentException("out must be an array with room for 3 values at offset " + offset);
+        }
+        // Per call: resident callbacks and threads a script starts may call this concurrently on the same mc object.
+        double[] position = new double[3];
+        Boolean found = runOnServerThreadSubmit("get_player_pos_into", s -> readPlayerPos(s, playerName, position));
+        if (found == null || !found) {
+            return false;
+        }
+        out.setArrayElement(offset, position[0]);
+        out.setArrayElement(offset + 1, position[1]);
+        out.setArrayElement(offset + 2, position[2]);
+        return true;
+    }
+
+    @HostAccess.Export
+    public PlayerPositions get_all_player_positions() {
+        return runOnServerThreadSubmit("get_all_player_positions", this::queryAllPlayerPositions);
+    }
+
+    @HostAccess.Export
+    public String get_player_dimension(String playerName) {
+        return runOnServerThreadSubmit("get_player_dimension", s -> queryPlayerDimension(s, playerName));
+    }
+
+    @HostAccess.Export
+    public ApiFuture<String> get_player_dimension_async(String playerName) {
+        return runOnServerThreadAsync("get_player_dimension_async", s -> queryPlayerDimension(s, playerName));
     }
 
 
     @HostAccess.Export
     public boolean teleport_player(String playerName, double x, double y, double z, String dimensionId) {
-        return Boolean.TRUE.equals(runOnServerThreadSubmit(s -> {
-            ServerPlayerEntity player = s.getPlayerManager().getPlayer(playerName);
-            if (player == null) {
-                log_error("Player not found for teleport: " + playerName);
-                return false;
-            }
+        return Boolean.TRUE.equals(runOnServerThreadSubmit("teleport_player", s -> teleportPlayer(s, playerName, x, y, z, dimensionId)));
+    }
 
-            Optional<ServerWorld> targetWorldOpt = resolveWorld(s, dimensionId);
-            if (targetWorldOpt.isEmpty()) {
-                return false;
-            }
+    @HostAccess.Export
+    public ApiFuture<Boolean> teleport_player_async(String playerName, double x, double y, double z, String dimensionId) {
+        return runOnServerThreadAsync("teleport_player_async", s -> teleportPlayer(s, playerName, x, y, z, dimensionId));
+    }
 
-            try {
-                player.setPos(x, y, z);
-                log_info("Teleported player " + playerName + " to " + x + "," + y + "," + z + " in " + dimensionId);
-                return true;
-            } catch (Exception e) {
-                log_error(String.format("Error teleporting player %s: %s", playerName, e.getMessage()));
-                LOGGER.error("Exception during teleport:", e);
-                return false;
-            }
-        }));
+    @HostAccess.Export
+    public WorldHandle world(String dimensionId) {
+        return worldHandle(dimensionId);
+    }
+
+    @HostAccess.Export
+    public BlockStateHandle block_state(String blockId) {
+        BlockStateHandle handle = Handles.blockState(blockId);
+        if (handle == null) {
+            log_error("Invalid or unknown block ID: " + blockId);
+        }
+        return handle;
     }
 
     @HostAccess.Export
     public String get_block(int x, int y, int z, String dimensionId) {
-        return runOnServerThreadSubmit(s -> {
-            Optional<ServerWorld> worldOpt = resolveWorld(s, dimensionId);
-            if (worldOpt.isEmpty()) return null;
+        return get_block(x, y, z, worldHandle(dimensionId));
+    }
 
-            BlockPos pos = new BlockPos(x, y, z);
-            ServerWorld world = worldOpt.get();
-            if (!world.isChunkLoaded(pos)) {
-                log_warning(String.format("Attempted to get block in unloaded chunk at %d,%d,%d in %s", x, y, z, dimensionId));
-                return null;
-            }
+    @HostAccess.Export
+    public String get_block(int x, int y, int z, WorldHandle world) {
+        if (useBlockCache(world)) {
+            BlockState state = cachedBlockState("get_block", x, y, z, world);
+            return state == null ? null : Handles.blockId(state);
+        }
+        return runOnServerThreadSubmit("get_block", s -> queryBlock(s, x, y, z, world));
+    }
 
-            try {
-                Identifier blockId = world.getBlockState(pos).getBlock().getRegistryEntry().registryKey().getValue();
-                return blockId.toString();
-            } catch (Exception e) {
-                log_error(String.format("Error getting block at %d,%d,%d in %s: %s", x, y, z, dimensionId, e.getMessage()));
-                LOGGER.error("Exception getting block state:", e);
-                return null;
+    @HostAccess.Export
+    public ApiFuture<String> get_block_async(int x, int y, int z, String dimensionId) {
+        WorldHandle world = worldHandle(dimensionId);
+        if (useBlockCache(world)) {
+            return profiled("get_block_async", () -> {
+                long pos = BlockPos.asLong(x, y, z);
+                BlockState cached = blockCache.get(world.getKey(), pos);
+                CompletableFuture<BlockState> state = cached != null
+                        ? CompletableFuture.completedFuture(cached)
+                        : loadBlockState("get_block_async", x, y, z, world);
+                return new ApiFuture<>(state.thenApply(loaded -> loaded == null ? null : Handles.blockId(loaded)));
+            });
+        }
+        return runOnServerThreadAsync("get_block_async", s -> queryBlock(s, x, y, z, world));
+    }
+
+    @HostAccess.Export
+    public int get_block_state_id(int x, int y, int z, WorldHandle world) {
+        if (useBlockCache(world)) {
+            BlockState state = cachedBlockState("get_block_state_id", x, y, z, world);
+            return state == null ? -1 : Block.getRawIdFromState(state);
+        }
+        Integer stateId = runOnServerThreadSubmit("get_block_state_id", s -> {
+            BlockState state = readLoadedBlockState(s, x, y, z, world);
+            return state == null ? -1 : Block.getRawIdFromState(state);
+        });
+        return stateId == null ? -1 : stateId;
+    }
+
+    @HostAccess.Export
+    public int[] get_block_state_ids(int[] coords, WorldHandle world) {
+        if (!checkPackedCoords(coords, "get_block_state_ids")) return null;
+        int count = coords.length / 3;
+        int[] result = new int[count];
+        runBatched("get_block_state_ids", count, 0, AUTO_BLOCK_BATCH, (s, from, to) -> {
+            Optional<ServerWorld> worldOpt = resolveWorld(s, world);
+            if (worldOpt.isEmpty()) return false;
+            ServerWorld serverWorld = worldOpt.get();
+
+            BlockPos.Mutable pos = new BlockPos.Mutable();
+            for (int i = from; i < to; i++) {
+                pos.set(coords[i * 3], coords[i * 3 + 1], coords[i * 3 + 2]);
+                if (serverWorld.isChunkLoaded(ChunkSectionPos.getSectionCoord(pos.getX()), ChunkSectionPos.getSectionCoord(pos.getZ()))) {
+                    result[i] = Block.getRawIdFromState(serverWorld.getBlockState(pos));
+                } else {
+                    result[i] = -1;
+                }
             }
+            return true;
         });
+        return result;
     }
 
     @HostAccess.Export
     public boolean set_block(int x, int y, int z, String blockIdStr, String dimensionId) {
-        return Boolean.TRUE.equals(runOnServerThreadSubmit(s -> {
+        WorldHandle world = worldHandle(dimensionId);
+        Optional<BlockState> stateOpt = resolveBlockState(blockIdStr);
+        if (world == null || stateOpt.isEmpty()) return false;
+        return Boolean.TRUE.equals(runOnServerThreadSubmit("set_block", s -> placeBlock(s, x, y, z, stateOpt.get(), world)));
+    }
+
+    @HostAccess.Export
+    public boolean set_block(int x, int y, int z, BlockStateHandle block, WorldHandle world) {
+        if (block == null) return false;
+        return Boolean.TRUE.equals(runOnServerThreadSubmit("set_block", s -> placeBlock(s, x, y, z, block.getState(), world)));
+    }
+
+    @HostAccess.Export
+    public ApiFuture<Boolean> set_block_async(int x, int y, int z, String blockIdStr, String dimensionId) {
+        WorldHandle world = worldHandle(dimensionId);
+        Optional<BlockState> stateOpt = resolveBlockState(blockIdStr);
+        if (world == null || stateOpt.isEmpty()) {
+            return new ApiFuture<>(CompletableFuture.completedFuture(false));
+        }
+        return runOnServerThreadAsync("set_block_async", s -> placeBlock(s, x, y, z, stateOpt.get(), world));
+    }
+
+    @HostAccess.Export
+    public boolean set_block_state_id(int x, int y, int z, int stateId, WorldHandle world) {
+        BlockState state = Block.STATE_IDS.get(stateId);
+        if (state == null) {
+            log_error("Unknown block state id: " + stateId);
+            return false;
+        }
+        return Boolean.TRUE.equals(runOnServerThreadSubmit("set_block_state_id", s -> placeBlock(s, x, y, z, state, world)));
+    }
+
+    @HostAccess.Export
+    public Object[] gather(List<ApiFuture<?>> futures) {
+        Object[] results = new Object[futures.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = futures.get(i).result();
+        }
+        return results;
+    }
+
+    @HostAccess.Export
+    public String[] get_blocks(int[] coords, String dimensionId) {
+        return get_blocks(coords, dimensionId, 0);
+    }
+
+    @HostAccess.Export
+    public String[] get_blocks(int[] coords, String dimensionId, int batchSize) {
+        if (!checkPackedCoords(coords, "get_blocks")) return null;
+        int count = coords.length / 3;
+        String[] result = new String[count];
+        runBatched("get_blocks", count, batchSize, AUTO_BLOCK_BATCH, (s, from, to) -> {
             Optional<ServerWorld> worldOpt = resolveWorld(s, dimensionId);
             if (worldOpt.isEmpty()) return false;
+            ServerWorld world = worldOpt.get();
 
-            Identifier blockIdentifier = Identifier.tryParse(blockIdStr);
-            if (blockIdentifier == null) {
-                log_error("Invalid block ID format for set_block: " + blockIdStr);
-                return false;
+            BlockPos.Mutable pos = new BlockPos.Mutable();
+            int unloaded = 0;
+            for (int i = from; i < to; i++) {
+                pos.set(coords[i * 3], coords[i * 3 + 1], coords[i * 3 + 2]);
+                if (!world.isChunkLoaded(ChunkSectionPos.getSectionCoord(pos.getX()), ChunkSectionPos.getSectionCoord(pos.getZ()))) {
+                    unloaded++;
+                    continue;
+                }
+                result[i] = Handles.blockId(world.getBlockState(pos));
+            }
+            if (unloaded > 0) {
+                log_warning(String.format("get_blocks skipped %d position(s) in unloaded chunks in %s", unloaded, dimensionId));
             }
-            Optional<Block> blockOpt = s.getRegistryManager()
-                    .getOptional(RegistryKeys.BLOCK).flatMap(optional -> optional.getOptionalValue(blockIdentifier));
+            return true;
+        });
+        return result;
+    }
 
-            if (blockOpt.isEmpty()) {
-                log_error("Block not found for set_block: " + blockIdStr);
-                return false;
+    @HostAccess.Export
+    public byte[] set_blocks(int[] coords, String blockIdStr, String dimensionId) {
+        return set_blocks(coords, blockIdStr, dimensionId, 0);
+    }
+
+    @HostAccess.Export
+    public byte[] set_blocks(int[] coords, String blockIdStr, String dimensionId, int batchSize) {
+        if (!checkPackedCoords(coords, "set_blocks")) return null;
+        Optional<BlockState> stateOpt = resolveBlockState(blockIdStr);
+        if (stateOpt.isEmpty()) return null;
+        return setBlocks(coords, stateOpt.get(), worldHandle(dimensionId), batchSize);
+    }
+
+    @HostAccess.Export
+    public byte[] set_blocks(int[] coords, BlockStateHandle block, WorldHandle world) {
+        return set_blocks(coords, block, world, 0);
+    }
+
+    @HostAccess.Export
+    public byte[] set_blocks(int[] coords, BlockStateHandle block, WorldHandle world, int batchSize) {
+        if (!checkPackedCoords(coords, "set_blocks") || block == null) return null;
+        return setBlocks(coords, block.getState(), world, batchSize);
+    }
+
+    private byte[] setBlocks(int[] coords, BlockState state, WorldHandle worldHandle, int batchSize) {
+
+        int count = coords.length / 3;
+        byte[] result = new byte[count];
+        runBatched("set_blocks", count, batchSize, AUTO_BLOCK_BATCH, (s, from, to) -> {
+            Optional<ServerWorld> worldOpt = resolveWorld(s, worldHandle);
+            if (worldOpt.isEmpty()) return false;
+            ServerWorld world = worldOpt.get();
+
+            BlockPos.Mutable pos = new BlockPos.Mutable();
+            for (int i = from; i < to; i++) {
+                pos.set(coords[i * 3], coords[i * 3 + 1], coords[i * 3 + 2]);
+                if (!world.isChunkLoaded(ChunkSectionPos.getSectionCoord(pos.getX()), ChunkSectionPos.getSectionCoord(pos.getZ()))) {
+                    result[i] = BULK_UNLOADED;
+                } else if (world.setBlockState(pos, state, 3)) {
+                    result[i] = BULK_CHANGED;
+                }
             }
+            return true;
+        });
+        return result;
+    }
+
+    @HostAccess.Export
+    public int fill_region(int x1, int y1, int z1, int x2, int y2, int z2, String blockIdStr, String dimensionId) {
+        return fill_region(x1, y1, z1, x2, y2, z2, blockIdStr, dimensionId, 0);
+    }
+
+    @HostAccess.Export
+    public int fill_region(int x1, int y1, int z1, int x2, int y2, int z2, String blockIdStr, String dimensionId, int batchSize) {
+        Optional<BlockState> stateOpt = resolveBlockState(blockIdStr);
+        if (stateOpt.isEmpty()) return 0;
+        BlockState state = stateOpt.get();
+
+        int minX = Math.min(x1, x2), minY = Math.min(y1, y2), minZ = Math.min(z1, z2);
+        long volume = regionVolume(x1, y1, z1, x2, y2, z2);
+        if (volume > MAX_BULK_BLOCKS) {
+            log_error("fill_region volume " + volume + " exceeds the limit of " + MAX_BULK_BLOCKS + " blocks.");
+            return 0;
+        }
+        // Each span is at most the volume now, so the int differences cannot overflow.
+        int sizeX = Math.max(x1, x2) - minX + 1, sizeZ = Math.max(z1, z2) - minZ + 1;
 
-            BlockPos pos = new BlockPos(x, y, z);
+        int[] changed = new int[1];
+        runBatched("fill_region", (int) volume, batchSize, AUTO_BLOCK_BATCH, (s, from, to) -> {
+            Optional<ServerWorld> worldOpt = resolveWorld(s, dimensionId);
+            if (worldOpt.isEmpty()) return false;
             ServerWorld world = worldOpt.get();
-            if (!world.isChunkLoaded(pos)) {
-                log_warning(String.format("Attempted to set block in unloaded chunk at %d,%d,%d in %s", x, y, z, dimensionId));
-                return false;
+
+            BlockPos.Mutable pos = new BlockPos.Mutable();
+            for (int i = from; i < to; i++) {
+                pos.set(minX + i % sizeX, minY + i / (sizeX * sizeZ), minZ + (i / sizeX) % sizeZ);
+                if (world.isChunkLoaded(ChunkSectionPos.getSectionCoord(pos.getX()), ChunkSectionPos.getSectionCoord(pos.getZ()))
+                        && world.setBlockState(pos, state, 3)) {
+                    changed[0]++;
+                }
             }
+            return true;
+        });
+        return changed[0];
+    }
 
-            try {
-                boolean success = world.setBlockState(pos, blockOpt.get().getDefaultState(), 3);
-                if (!success) {
-                    log_warning("setBlockState returned false for " + blockIdStr + " at " + pos + " in " + dimensionId);
+    @HostAccess.Export
+    public EditSession edit_session(String dimensionId) {
+        return edit_session(dimensionId, true);
+    }
+
+    @HostAccess.Export
+    public EditSession edit_session(String dimensionId, boolean updateNeighbors) {
+        WorldHandle world = worldHandle(dimensionId);
+        return world != null ? new EditSession(this, world, updateNeighbors, MAX_BULK_BLOCKS) : null;
+    }
+
+    @HostAccess.Export
+    public EditSession edit_session(WorldHandle world, boolean updateNeighbors) {
+        return world != null ? new EditSession(this, world, updateNeighbors, MAX_BULK_BLOCKS) : null;
+    }
+
+    // Called by EditSession.commit with positions already sorted by chunk section. Returns the number of changed blocks.
+    int applyEditSession(WorldHandle world, long[] positions, int[] states, boolean updateNeighbors, int batchSize) {
+        EditJournal journal = new EditJournal(commandSource.getName(), world, updateNeighbors, positions.length);
+        AtomicBoolean finished = new AtomicBoolean();
+        Consumer<MinecraftServer> finish = s -> {
+            if (finished.compareAndSet(false, true)) {
+                resolveWorld(s, world).ifPresent(journal::finish);
+                SnakesAndThreads.getEditHistory().push(journal);
+            }
+        };
+        boolean waited = false;
+        try {
+            runBatched("edit_session.commit", positions.length, batchSize, AUTO_BLOCK_BATCH, (s, from, to) -> {
+                Optional<ServerWorld> worldOpt = resolveWorld(s, world);
+                if (worldOpt.isEmpty()) return false;
+                journal.apply(worldOpt.get(), positions, states, from, to);
+                return true;
+            });
+            // Waited for, so a /pyundo issued right after commit() returns finds this journal on the history.
+            runOnServerThreadSubmit("edit_session.finish", s -> {
+                finish.accept(s);
+                return null;
+            });
+            waited = true;
+        } finally {
+            // Still queued when a batch or the wait fails, so the blocks already written get their updates and can be
+            // undone. The flag keeps it from running twice if the waited task went through after all.
+            if (!waited) {
+                runOnServerThreadExecute("edit_session.finish", finish);
+            }
+        }
+        return journal.getSize();
+    }
+
+    // Blocks in the box between two corners, or Long.MAX_VALUE if that does not fit in a long. Spans are taken in long
+    // so that far-apart int coordinates cannot wrap around to a small region.
+    static long regionVolume(int x1, int y1, int z1, int x2, int y2, int z2) {
+        long sizeX = Math.abs((long) x2 - x1) + 1, sizeY = Math.abs((long) y2 - y1) + 1, sizeZ = Math.abs((long) z2 - z1) + 1;
+        try {
+            return Math.multiplyExact(Math.multiplyExact(sizeX, sizeY), sizeZ);
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    @HostAccess.Export
+    @SuppressWarnings("unchecked")
+    public WorldSnapshot snapshot_chunks(String dimensionId, int x1, int y1, int z1, int x2, int y2, int z2) {
+        int minX = Math.min(x1, x2), minY = Math.min(y1, y2), minZ = Math.min(z1, z2);
+        int maxX = Math.max(x1, x2), maxY = Math.max(y1, y2), maxZ = Math.max(z1, z2);
+        long volume = regionVolume(x1, y1, z1, x2, y2, z2);
+        if (volume > MAX_BULK_BLOCKS) {
+            log_error("snapshot_chunks volume " + volume + " exceeds the limit of " + MAX_BULK_BLOCKS + " blocks.");
+            return null;
+        }
+
+        int chunksX = (maxX >> 4) - (minX >> 4) + 1;
+        int sectionsY = (maxY >> 4) - (minY >> 4) + 1;
+        int chunksZ = (maxZ >> 4) - (minZ >> 4) + 1;
+        PalettedContainer<BlockState>[][][] sections = new PalettedContainer[chunksX][sectionsY][chunksZ];
+        boolean[][] loadedColumns = new boolean[chunksX][chunksZ];
+
+        boolean captured = Boolean.TRUE.equals(runOnServerThreadSubmit("snapshot_chunks", s -> {
+            Optional<ServerWorld> worldOpt = resolveWorld(s, dimensionId);
+            if (worldOpt.isEmpty()) return false;
+            ServerWorld world = worldOpt.get();
+
+            for (int cx = 0; cx < chunksX; cx++) {
+                for (int cz = 0; cz < chunksZ; cz++) {
+                    WorldChunk chunk = world.getChunkManager().getWorldChunk((minX >> 4) + cx, (minZ >> 4) + cz);
+                    if (chunk == null) continue;
+                    loadedColumns[cx][cz] = true;
+
+                    ChunkSection[] chunkSections = chunk.getSectionArray();
+                    for (int sy = 0; sy < sectionsY; sy++) {
+                        int sectionIndex = world.sectionCoordToIndex((minY >> 4) + sy);
+                        if (sectionIndex < 0 || sectionIndex >= chunkSections.length) continue;
+                        ChunkSection section = chunkSections[sectionIndex];
+                        if (section != null && !section.isEmpty()) {
+                            sections[cx][sy][cz] = section.getBlockStateContainer().copy();
+                        }
+                    }
                 }
-                return success;
-            } catch (Exception e) {
-                log_error(String.format("Error setting block %s at %d,%d,%d in %s: %s", blockIdStr, x, y, z, dimensionId, e.getMessage()));
-                LOGGER.error("Exception setting block state:", e);
-                return false;
             }
+            return true;
         }));
+        if (!captured) return null;
+
+        return WorldSnapshot.decode(dimensionId, minX, minY, minZ, maxX, maxY, maxZ, sections, loadedColumns);
+    }
+
+    // Entities whose position lies in the box between the two corners. type_filter is an entity type ID or None for all
+    // types; limit <= 0 means no limit.
+    @HostAccess.Export
+    public EntityQueryResult query_entities(String dimensionId, double x1, double y1, double z1, double x2, double y2, double z2,
+                                            String typeFilter, int limit) {
+        Box box = new Box(x1, y1, z1, x2, y2, z2);
+        return runOnServerThreadSubmit("query_entities", s -> queryEntities(s, dimensionId, box,
+                entity -> box.contains(entity.getX(), entity.getY(), entity.getZ()), typeFilter, limit));
+    }
+
+    // Entities within radius of (x, y, z).
+    @HostAccess.Export
+    public EntityQueryResult query_entities(String dimensionId, double x, double y, double z, double radius,
+                                            String typeFilter, int limit) {
+        Box box = new Box(x - radius, y - radius, z - radius, x + radius, y + radius, z + radius);
+        double radiusSquared = radius * radius;
+        return runOnServerThreadSubmit("query_entities", s -> queryEntities(s, dimensionId, box,
+                entity -> entity.squaredDistanceTo(x, y, z) <= radiusSquared, typeFilter, limit));
+    }
+
+    @HostAccess.Export
+    public int on(String eventType, Value callback) {
+        return run.subscribe(eventType, callback);
+    }
+
+    @HostAccess.Export
+    public boolean off(int subscriptionId) {
+        return SnakesAndThreads.getScriptEventBus().unsubscribe(subscriptionId);
     }
 
     @HostAccess.Export
@@ -250,48 +782,299 @@ public class MinecraftAPI {
     }
 
     @HostAccess.Export
-    public Map<String, Double> get_executor_pos() {
-        return runOnServerThreadSubmit(s -> {
-            Entity entity = commandSource.getEntity();
-            return entityPosToMap(entity);
-        });
+    public Position get_executor_pos() {
+        return runOnServerThreadSubmit("get_executor_pos", s -> queryExecutorPos(s));
+    }
+
+    @HostAccess.Export
+    public ApiFuture<Position> get_executor_pos_async() {
+        return runOnServerThreadAsync("get_executor_pos_async", s -> queryExecutorPos(s));
     }
 
     @HostAccess.Export
     public String get_executor_dimension() {
-        return runOnServerThreadSubmit(s -> {
-            Entity entity = commandSource.getEntity();
-            if (entity != null && entity.getWorld() != null) {
-                return entity.getWorld().getRegistryKey().getValue().toString();
+        return runOnServerThreadSubmit("get_executor_dimension", s -> queryExecutorDimension(s));
+    }
+
+    @HostAccess.Export
+    public ApiFuture<String> get_executor_dimension_async() {
+        return runOnServerThreadAsync("get_executor_dimension_async", s -> queryExecutorDimension(s));
+    }
+
+    private Position queryPlayerPos(MinecraftServer s, String playerName) {
+        ServerPlayerEntity player = s.getPlayerManager().getPlayer(playerName);
+        if (player != null) {
+            return entityPosition(player);
+        } else {
+            log_error("Player not found: " + playerName);
+            return null;
+        }
+    }
+
+    private Boolean readPlayerPos(MinecraftServer s, String playerName, double[] target) {
+        ServerPlayerEntity player = s.getPlayerManager().getPlayer(playerName);
+        if (player == null) {
+            return false;
+        }
+        target[0] = player.getX();
+        target[1] = player.getY();
+        target[2] = player.getZ();
+        return true;
+    }
+
+    private PlayerPositions queryAllPlayerPositions(MinecraftServer s) {
+        List<ServerPlayerEntity> players = s.getPlayerManager().getPlayerList();
+        int count = players.size();
+        String[] names = new String[count];
+        String[] dimensions = new String[count];
+        double[] coords = new double[count * 3];
+        for (int i = 0; i < count; i++) {
+            ServerPlayerEntity player = players.get(i);
+            names[i] = player.getGameProfile().getName();
+            dimensions[i] = Handles.worldId(player.getWorld().getRegistryKey());
+            coords[i * 3] = player.getX();
+            coords[i * 3 + 1] = player.getY();
+            coords[i * 3 + 2] = player.getZ();
+        }
+        return new PlayerPositions(names, dimensions, coords);
+    }
+
+    private String queryPlayerDimension(MinecraftServer s, String playerName) {
+        ServerPlayerEntity player = s.getPlayerManager().getPlayer(playerName);
+        if (player != null && player.getWorld() != null) {
+            return player.getWorld().getRegistryKey().getValue().toString();
+        } else if (player == null) {
+            log_error("Player not found: " + playerName);
+        } else {
+            log_error("Player " + playerName + " has null world reference.");
+        }
+        return null;
+    }
+
+    private boolean teleportPlayer(MinecraftServer s, String playerName, double x, double y, double z, String dimensionId) {
+        ServerPlayerEntity player = s.getPlayerManager().getPlayer(playerName);
+        if (player == null) {
+            log_error("Player not found for teleport: " + playerName);
+            return false;
+        }
+
+        Optional<ServerWorld> targetWorldOpt = resolveWorld(s, dimensionId);
+        if (targetWorldOpt.isEmpty()) {
+            return false;
+        }
+
+        try {
+            player.setPos(x, y, z);
+            log_info("Teleported player " + playerName + " to " + x + "," + y + "," + z + " in " + dimensionId);
+            return true;
+        } catch (Exception e) {
+            log_error(String.format("Error teleporting player %s: %s", playerName, e.getMessage()));
+            LOGGER.error("Exception during teleport:", e);
+            return false;
+        }
+    }
+
+    private BlockState readLoadedBlockState(MinecraftServer s, int x, int y, int z, WorldHandle handle) {
+        Optional<ServerWorld> worldOpt = resolveWorld(s, handle);
+        if (worldOpt.isEmpty()) return null;
+
+        BlockPos pos = new BlockPos(x, y, z);
+        ServerWorld world = worldOpt.get();
+        if (!world.isChunkLoaded(pos)) {
+            log_warning(String.format("Attempted to get block in unloaded chunk at %d,%d,%d in %s", x, y, z, handle.id()));
+            return null;
+        }
+        return world.getBlockState(pos);
+    }
+
+    private boolean useBlockCache(WorldHandle world) {
+        return blockCache.isEnabled() && world != null && server != null && !server.isOnThread();
+    }
+
+    private BlockState cachedBlockState(String method, int x, int y, int z, WorldHandle world) {
+        return profiled(method, () -> readThroughCache(method, x, y, z, world));
+    }
+
+    private BlockState readThroughCache(String method, int x, int y, int z, WorldHandle world) {
+        BlockState cached = blockCache.get(world.getKey(), BlockPos.asLong(x, y, z));
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            return awaitServerResult(loadBlockState(method, x, y, z, world));
+        } catch (Exception e) {
+            log_error("Error reading block through the cache: " + e.getMessage());
+            LOGGER.error("Error reading block through the cache:", e);
+            throw e;
+        }
+    }
+
+    // The read runs on the server thread, so no block change can slip in between reading and caching the state.
+    private CompletableFuture<BlockState> loadBlockState(String method, int x, int y, int z, WorldHandle world) {
+        long pos = BlockPos.asLong(x, y, z);
+        return blockCache.load(world.getKey(), pos, () -> queueOnServerThread(instrumented(method, s -> {
+            BlockState state = readLoadedBlockState(s, x, y, z, world);
+            if (state != null) {
+                blockCache.put(world.getKey(), pos, state);
             }
+            return state;
+        })));
+    }
+
+    private String queryBlock(MinecraftServer s, int x, int y, int z, WorldHandle handle) {
+        try {
+            BlockState state = readLoadedBlockState(s, x, y, z, handle);
+            return state == null ? null : Handles.blockId(state);
+        } catch (Exception e) {
+            log_error(String.format("Error getting block at %d,%d,%d in %s: %s", x, y, z, handle, e.getMessage()));
+            LOGGER.error("Exception getting block state:", e);
             return null;
-        });
+        }
+    }
+
+    private boolean placeBlock(MinecraftServer s, int x, int y, int z, BlockState state, WorldHandle handle) {
+        Optional<ServerWorld> worldOpt = resolveWorld(s, handle);
+        if (worldOpt.isEmpty()) return false;
+
+        BlockPos pos = new BlockPos(x, y, z);
+        ServerWorld world = worldOpt.get();
+        if (!world.isChunkLoaded(pos)) {
+            log_warning(String.format("Attempted to set block in unloaded chunk at %d,%d,%d in %s", x, y, z, handle.id()));
+            return false;
+        }
+
+        try {
+            boolean success = world.setBlockState(pos, state, 3);
+            if (!success) {
+                log_warning("setBlockState returned false for " + state + " at " + pos + " in " + handle.id());
+            }
+            return success;
+        } catch (Exception e) {
+            log_error(String.format("Error setting block %s at %d,%d,%d in %s: %s", state, x, y, z, handle.id(), e.getMessage()));
+            LOGGER.error("Exception setting block state:", e);
+            return false;
+        }
+    }
+
+    private Position queryExecutorPos(MinecraftServer s) {
+        Entity entity = commandSource.getEntity();
+        return entityPosition(entity);
+    }
+
+    private String queryExecutorDimension(MinecraftServer s) {
+        Entity entity = commandSource.getEntity();
+        if (entity != null && entity.getWorld() != null) {
+            return entity.getWorld().getRegistryKey().getValue().toString();
+        }
+        return null;
+    }
+
+    private EntityQueryResult queryEntities(MinecraftServer s, String dimensionId, Box box, Predicate<Entity> predicate,
+                                            String typeFilter, int limit) {
+        Optional<ServerWorld> worldOpt = resolveWorld(s, dimensionId);
+        if (worldOpt.isEmpty()) return null;
+
+        TypeFilter<Entity, ?> filter;
+        if (typeFilter == null || typeFilter.isEmpty()) {
+            filter = TypeFilter.instanceOf(Entity.class);
+        } else {
+            Identifier typeId = Identifier.tryParse(typeFilter);
+            Optional<EntityType<?>> type = typeId == null ? Optional.empty() : Registries.ENTITY_TYPE.getOptionalValue(typeId);
+            if (type.isEmpty()) {
+                log_error("Invalid or unknown entity type: " + typeFilter);
+                return null;
+            }
+            filter = type.get();
+        }
+
+        // Walks only the entity sections intersecting the box and stops once the limit is reached.
+        List<Entity> entities = new ArrayList<>();
+        collectEntities(worldOpt.get(), filter, box, predicate, entities, limit > 0 ? limit : Integer.MAX_VALUE);
+
+        int count = entities.size();
+        int[] ids = new int[count];
+        String[] uuids = new String[count];
+        String[] types = new String[count];
+        double[] coords = new double[count * 3];
+        for (int i = 0; i < count; i++) {
+            Entity entity = entities.get(i);
+            ids[i] = entity.getId();
+            uuids[i] = entity.getUuidAsString();
+            types[i] = Handles.entityTypeId(entity.getType());
+            coords[i * 3] = entity.getX();
+            coords[i * 3 + 1] = entity.getY();
+            coords[i * 3 + 2] = entity.getZ();
+        }
+        return new EntityQueryResult(ids, uuids, types, coords);
+    }
+
+    private static <T extends Entity> void collectEntities(ServerWorld world, TypeFilter<Entity, T> filter, Box box,
+                                                           Predicate<? super T> predicate, List<? super T> result, int limit) {
+        world.collectEntitiesByType(filter, box, predicate, result, limit);
     }
 
-    private Map<String, Double> entityPosToMap(Entity entity) {
+    private Position entityPosition(Entity entity) {
         if (entity != null) {
-            Vec3d pos = entity.getPos();
-            Map<String, Double> result = new HashMap<>();
-            result.put("x", pos.x);
-            result.put("y", pos.y);
-            result.put("z", pos.z);
-            return result;
+            return new Position(entity.getX(), entity.getY(), entity.getZ());
         }
         return null;
     }
 
-    private Optional<ServerWorld> resolveWorld(MinecraftServer s, String dimensionId) {
-        if (s == null || dimensionId == null) return Optional.empty();
+    private interface BatchAction {
+        boolean apply(MinecraftServer server, int from, int to);
+    }
 
-        Identifier dimIdentifier = Identifier.tryParse(dimensionId);
-        if (dimIdentifier == null) {
-            log_error("Invalid dimension ID format: " + dimensionId);
+    private void runBatched(String method, int count, int batchSize, int autoBatchSize, BatchAction action) {
+        int step = batchSize > 0 ? batchSize : autoBatchSize;
+        for (int from = 0; from < count; from += step) {
+            int start = from;
+            int end = Math.min(count, from + step);
+            if (!Boolean.TRUE.equals(runOnServerThreadSubmit(method, s -> action.apply(s, start, end)))) {
+                return;
+            }
+        }
+    }
+
+    private boolean checkPackedCoords(int[] coords, String method) {
+        if (coords == null || coords.length % 3 != 0) {
+            log_error(method + " expects a flat array of x, y, z triples.");
+            return false;
+        }
+        if (coords.length / 3 > MAX_BULK_BLOCKS) {
+            log_error(method + " batch of " + coords.length / 3 + " positions exceeds the limit of " + MAX_BULK_BLOCKS + " blocks.");
+            return false;
+        }
+        return true;
+    }
+
+    private Optional<BlockState> resolveBlockState(String blockIdStr) {
+        BlockStateHandle handle = Handles.blockState(blockIdStr);
+        if (handle == null) {
+            log_error("Invalid or unknown block ID: " + blockIdStr);
             return Optional.empty();
         }
-        RegistryKey<World> worldKey = RegistryKey.of(RegistryKeys.WORLD, dimIdentifier);
-        ServerWorld world = s.getWorld(worldKey);
+        return Optional.of(handle.getState());
+    }
+
+    private WorldHandle worldHandle(String dimensionId) {
+        if (dimensionId == null) return null;
+        WorldHandle handle = Handles.world(dimensionId);
+        if (handle == null) {
+            log_error("Invalid dimension ID format: " + dimensionId);
+        }
+        return handle;
+    }
+
+    private Optional<ServerWorld> resolveWorld(MinecraftServer s, String dimensionId) {
+        return resolveWorld(s, worldHandle(dimensionId));
+    }
+
+    private Optional<ServerWorld> resolveWorld(MinecraftServer s, WorldHandle handle) {
+        if (s == null || handle == null) return Optional.empty();
+
+        ServerWorld world = handle.resolve(s);
         if (world == null) {
-            log_error("Dimension not found or not loaded: " + dimensionId);
+            log_error("Dimension not found or not loaded: " + handle.id());
             return Optional.empty();
         }
         return Optional.of(world);
@@ -0,0 +1,46 @@
+package minhcrafters.pyfabric.api;
+
+import org.graalvm.polyglot.HostAccess;
+
+// Positions of all online players packed into one array: player i is at coords[3*i .. 3*i+2].
+public class PlayerPositions {
+    private final String[] names;
+    private final String[] dimensions;
+    private final double[] coords;
+
+    PlayerPositions(String[] names, String[] dimensions, double[] coords) {
+        this.names = names;
+        this.dimensions = dimensions;
+        this.coords = coords;
+    }
+
+    @HostAccess.Export
+    public int count() {
+        return names.length;
+    }
+
+    @HostAccess.Export
+    public String[] names() {
+        return names;
+    }
+
+    @HostAccess.Export
+    public String[] dimensions() {
+        return dimensions;
+    }
+
+    @HostAccess.Export
+    public double[] coords() {
+        return coords;
+    }
+
+    @HostAccess.Export
+    public int index_of(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,134 @@
+package minhcrafters.pyfabric.api;
+
+import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.proxy.ProxyArray;
+import org.graalvm.polyglot.proxy.ProxyHashMap;
+import org.graalvm.polyglot.proxy.ProxyIterator;
+import org.graalvm.polyglot.proxy.ProxyObject;
+
+import java.util.List;
+
+// x/y/z result for scripts. Readable and writable as pos['x'] (like the old dict result), pos.x or pos[0], without
+// allocating a map and three boxed doubles per call. Every call returns a new Position, so writes stay with the script.
+public final class Position implements ProxyObject, ProxyHashMap {
+    private static final ProxyArray KEYS = ProxyArray.fromArray("x", "y", "z");
+
+    private double x;
+    private double y;
+    private double z;
+
+    public Position(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public double get(int index) {
+        return switch (index) {
+            case 0 -> x;
+            case 1 -> y;
+            case 2 -> z;
+            default -> throw new IndexOutOfBoundsException("Position index out of range: " + index);
+        };
+    }
+
+    private void set(int index, Value value) {
+        if (!value.isNumber()) {
+            throw new IllegalArgumentException("Position coordinates must be numbers");
+        }
+        double coordinate = value.asDouble();
+        switch (index) {
+            case 0 -> x = coordinate;
+            case 1 -> y = coordinate;
+            case 2 -> z = coordinate;
+            default -> throw new UnsupportedOperationException("Position only has the keys x, y and z");
+        }
+    }
+
+    private static int indexOf(String key) {
+        return switch (key) {
+            case "x" -> 0;
+            case "y" -> 1;
+            case "z" -> 2;
+            default -> -1;
+        };
+    }
+
+    private static int indexOf(Value key) {
+        if (key.isString()) {
+            return indexOf(key.asString());
+        }
+        if (key.fitsInInt()) {
+            int index = key.asInt();
+            return index >= 0 && index < 3 ? index : -1;
+        }
+        return -1;
+    }
+
+    @Override
+    public Object getMember(String key) {
+        int index = indexOf(key);
+        return index < 0 ? null : get(index);
+    }
+
+    @Override
+    public Object getMemberKeys() {
+        return KEYS;
+    }
+
+    @Override
+    public boolean hasMember(String key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public void putMember(String key, Value value) {
+        set(indexOf(key), value);
+    }
+
+    @Override
+    public long getHashSize() {
+        return 3;
+    }
+
+    @Override
+    public boolean hasHashEntry(Value key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object getHashValue(Value key) {
+        int index = indexOf(key);
+        return index < 0 ? null : get(index);
+    }
+
+    @Override
+    public void putHashEntry(Value key, Value value) {
+        set(indexOf(key), value);
+    }
+
+    @Override
+    public Object getHashEntriesIterator() {
+        return ProxyIterator.from(List.<Object>of(
+                ProxyArray.fromArray("x", x),
+                ProxyArray.fromArray("y", y),
+                ProxyArray.fromArray("z", z)).iterator());
+    }
+
+    @Override
+    public String toString() {
+        return "{'x': " + x + ", 'y': " + y + ", 'z': " + z + "}";
+    }
+}
@@ -0,0 +1,110 @@
+package minhcrafters.pyfabric.api;
+
+import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A command template with {} placeholders, split once so binding arguments is plain string concatenation. Bound
+// commands go through the script's parse cache, and run_many runs a whole list of bindings in one server-thread task.
+public class PreparedCommand {
+    private final MinecraftAPI api;
+    private final String template;
+    // The text around the placeholders: parts.length == placeholders + 1.
+    private final String[] parts;
+
+    private PreparedCommand(MinecraftAPI api, String template, String[] parts) {
+        this.api = api;
+        this.template = template;
+        this.parts = parts;
+    }
+
+    static PreparedCommand of(MinecraftAPI api, String template) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        int index;
+        while ((index = template.indexOf("{}", start)) >= 0) {
+            parts.add(template.substring(start, index));
+            start = index + 2;
+        }
+        parts.add(template.substring(start));
+        return new PreparedCommand(api, template, parts.toArray(new String[0]));
+    }
+
+    @HostAccess.Export
+    public String template() {
+        return template;
+    }
+
+    @HostAccess.Export
+    public int placeholders() {
+        return parts.length - 1;
+    }
+
+    // Returns the command string for the given arguments.
+    @HostAccess.Export
+    public String bind(Value... args) {
+        if (args.length != parts.length - 1) {
+            api.log_error("Command template '" + template + "' takes " + (parts.length - 1) + " argument(s), got " + args.length);
+            return null;
+        }
+        StringBuilder command = new StringBuilder(template.length() + args.length * 8);
+        command.append(parts[0]);
+        for (int i = 0; i < args.length; i++) {
+            command.append(argument(args[i])).append(parts[i + 1]);
+        }
+        return command.toString();
+    }
+
+    @HostAccess.Export
+    public int run(Value... args) {
+        String command = bind(args);
+        return command == null ? CommandRunner.NO_RESULT : api.run_commands(new String[]{command})[0];
+    }
+
+    // Each element of rows is the argument list for one run. Returns one result code per row.
+    @HostAccess.Export
+    public int[] run_many(Value rows) {
+        return run_many(rows, 0);
+    }
+
+    @HostAccess.Export
+    public int[] run_many(Value rows, int batchSize) {
+        if (rows == null || !rows.hasArrayElements()) {
+            api.log_error("run_many expects a list of argument lists.");
+            return null;
+        }
+        String[] commands = new String[(int) rows.getArraySize()];
+        for (int i = 0; i < commands.length; i++) {
+            Value row = rows.getArrayElement(i);
+            Value[] args;
+            if (row.hasArrayElements()) {
+                args = new Value[(int) row.getArraySize()];
+                for (int j = 0; j < args.length; j++) {
+                    args[j] = row.getArrayElement(j);
+                }
+            } else {
+                args = new Value[]{row};
+            }
+            commands[i] = bind(args);
+            if (commands[i] == null) {
+                return null;
+            }
+        }
+        return api.run_commands(commands, batchSize);
+    }
+
+    private static String argument(Value value) {
+        if (value.isString()) {
+            return value.asString();
+        }
+        if (value.isBoolean()) {
+            return Boolean.toString(value.asBoolean());
+        }
+        if (value.isNumber()) {
+            return value.fitsInLong() ? Long.toString(value.asLong()) : Double.toString(value.asDouble());
+        }
+        return value.toString();
+    }
+}
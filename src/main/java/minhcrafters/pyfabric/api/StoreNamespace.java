@@ -0,0 +1,123 @@
+package minhcrafters.pyfabric.api;
+
+import minhcrafters.pyfabric.store.ScriptStore;
+import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.Value;
+
+// mc.store: the key-value store shared by all scripts and kept across restarts. Each call is atomic for its key.
+public class StoreNamespace {
+    private final MinecraftAPI api;
+    private final ScriptStore store;
+
+    StoreNamespace(MinecraftAPI api, ScriptStore store) {
+        this.api = api;
+        this.store = store;
+    }
+
+    @HostAccess.Export
+    public Object get(String key) {
+        return store.get(key);
+    }
+
+    @HostAccess.Export
+    public Object get(String key, Value defaultValue) {
+        Object value = store.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @HostAccess.Export
+    public boolean contains(String key) {
+        return store.contains(key);
+    }
+
+    @HostAccess.Export
+    public int size() {
+        return store.size();
+    }
+
+    @HostAccess.Export
+    public String[] keys() {
+        return store.keys(null).toArray(new String[0]);
+    }
+
+    @HostAccess.Export
+    public String[] keys(String prefix) {
+        return store.keys(prefix).toArray(new String[0]);
+    }
+
+    // Putting None removes the key.
+    @HostAccess.Export
+    public boolean put(String key, Value value) {
+        try {
+            store.put(key, toStoreValue(value));
+            return true;
+        } catch (RuntimeException e) {
+            api.log_error("store.put('" + key + "') failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @HostAccess.Export
+    public boolean remove(String key) {
+        try {
+            return store.remove(key);
+        } catch (RuntimeException e) {
+            api.log_error("store.remove('" + key + "') failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @HostAccess.Export
+    public Long incr(String key) {
+        return incr(key, 1L);
+    }
+
+    // Returns the new value, or None if the key holds something other than an integer.
+    @HostAccess.Export
+    public Long incr(String key, long delta) {
+        try {
+            return store.incr(key, delta);
+        } catch (RuntimeException e) {
+            api.log_error("store.incr('" + key + "') failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Expecting None means the key must be absent; updating to None removes it.
+    @HostAccess.Export
+    public boolean compare_and_set(String key, Value expected, Value update) {
+        try {
+            return store.compareAndSet(key, toStoreValue(expected), toStoreValue(update));
+        } catch (RuntimeException e) {
+            api.log_error("store.compare_and_set('" + key + "') failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static Object toStoreValue(Value value) {
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        if (value.isBoolean()) {
+            return value.asBoolean();
+        }
+        if (value.isNumber()) {
+            // fitsInLong is true for 1.0 too, so the Python type decides between int and float.
+            String type = value.getMetaObject() == null ? "" : value.getMetaObject().getMetaSimpleName();
+            if (type.equals("float")) {
+                return value.asDouble();
+            }
+            if (value.fitsInLong()) {
+                return value.asLong();
+            }
+            if (type.equals("int")) {
+                throw new IllegalArgumentException("stored ints must fit in 64 bits");
+            }
+            return value.asDouble();
+        }
+        if (value.isString()) {
+            return value.asString();
+        }
+        throw new IllegalArgumentException("only None, bool, int, float and str can be stored, got " + value.getMetaObject());
+    }
+}
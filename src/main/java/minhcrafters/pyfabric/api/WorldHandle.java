@@ -0,0 +1,35 @@
+package minhcrafters.pyfabric.api;
+
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.world.World;
+import org.graalvm.polyglot.HostAccess;
+
+public class WorldHandle {
+    private final String id;
+    private final RegistryKey<World> key;
+
+    WorldHandle(String id, RegistryKey<World> key) {
+        this.id = id;
+        this.key = key;
+    }
+
+    public RegistryKey<World> getKey() {
+        return key;
+    }
+
+    ServerWorld resolve(MinecraftServer server) {
+        return server.getWorld(key);
+    }
+
+    @HostAccess.Export
+    public String id() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
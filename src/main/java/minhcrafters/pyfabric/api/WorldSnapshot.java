@@ -0,0 +1,162 @@
+package minhcrafters.pyfabric.api;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.registry.Registries;
+import net.minecraft.world.chunk.PalettedContainer;
+import org.graalvm.polyglot.HostAccess;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class WorldSnapshot {
+    public static final short UNLOADED = -1;
+    private static final BlockState AIR = Blocks.AIR.getDefaultState();
+
+    private final String dimensionId;
+    private final int minX, minY, minZ;
+    private final int sizeX, sizeY, sizeZ;
+    private final short[] states;
+    private final String[] palette;
+    private final int[] paletteRawIds;
+
+    private WorldSnapshot(String dimensionId, int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ,
+                          short[] states, String[] palette, int[] paletteRawIds) {
+        this.dimensionId = dimensionId;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.states = states;
+        this.palette = palette;
+        this.paletteRawIds = paletteRawIds;
+    }
+
+    // Section copies captured on the server thread, indexed by [chunkX][sectionY][chunkZ] relative to the box.
+    // Decoding them happens on the calling (script) thread, the copies are not shared with the world anymore.
+    static WorldSnapshot decode(String dimensionId, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                                PalettedContainer<BlockState>[][][] sections, boolean[][] loadedColumns) {
+        int sizeX = maxX - minX + 1, sizeY = maxY - minY + 1, sizeZ = maxZ - minZ + 1;
+        int baseChunkX = minX >> 4, baseSectionY = minY >> 4, baseChunkZ = minZ >> 4;
+
+        short[] states = new short[sizeX * sizeY * sizeZ];
+        Map<BlockState, Short> paletteIndex = new IdentityHashMap<>();
+        List<BlockState> paletteStates = new ArrayList<>();
+
+        int index = 0;
+        // Counted loops: y <= maxY never ends when maxY is Integer.MAX_VALUE.
+        for (int dy = 0; dy < sizeY; dy++) {
+            int y = minY + dy;
+            int sectionY = (y >> 4) - baseSectionY;
+            for (int dz = 0; dz < sizeZ; dz++) {
+                int z = minZ + dz;
+                int chunkZ = (z >> 4) - baseChunkZ;
+                for (int dx = 0; dx < sizeX; dx++) {
+                    int x = minX + dx;
+                    int chunkX = (x >> 4) - baseChunkX;
+                    if (!loadedColumns[chunkX][chunkZ]) {
+                        states[index++] = UNLOADED;
+                        continue;
+                    }
+                    PalettedContainer<BlockState> section = sections[chunkX][sectionY][chunkZ];
+                    BlockState state = section == null ? AIR : section.get(x & 15, y & 15, z & 15);
+                    Short paletteId = paletteIndex.get(state);
+                    if (paletteId == null) {
+                        if (paletteStates.size() > Short.MAX_VALUE) {
+                            throw new IllegalStateException("Snapshot contains too many distinct block states");
+                        }
+                        paletteId = (short) paletteStates.size();
+                        paletteIndex.put(state, paletteId);
+                        paletteStates.add(state);
+                    }
+                    states[index++] = paletteId;
+                }
+            }
+        }
+
+        String[] palette = new String[paletteStates.size()];
+        int[] paletteRawIds = new int[paletteStates.size()];
+        for (int i = 0; i < palette.length; i++) {
+            BlockState state = paletteStates.get(i);
+            palette[i] = Registries.BLOCK.getId(state.getBlock()).toString();
+            paletteRawIds[i] = Block.getRawIdFromState(state);
+        }
+        return new WorldSnapshot(dimensionId, minX, minY, minZ, sizeX, sizeY, sizeZ, states, palette, paletteRawIds);
+    }
+
+    private int indexOf(int x, int y, int z) {
+        int dx = x - minX, dy = y - minY, dz = z - minZ;
+        if (dx < 0 || dy < 0 || dz < 0 || dx >= sizeX || dy >= sizeY || dz >= sizeZ) {
+            return -1;
+        }
+        return (dy * sizeZ + dz) * sizeX + dx;
+    }
+
+    @HostAccess.Export
+    public int get_index(int x, int y, int z) {
+        int index = indexOf(x, y, z);
+        return index < 0 ? UNLOADED : states[index];
+    }
+
+    @HostAccess.Export
+    public String get(int x, int y, int z) {
+        int paletteId = get_index(x, y, z);
+        return paletteId < 0 ? null : palette[paletteId];
+    }
+
+    @HostAccess.Export
+    public int get_state_id(int x, int y, int z) {
+        int paletteId = get_index(x, y, z);
+        return paletteId < 0 ? -1 : paletteRawIds[paletteId];
+    }
+
+    @HostAccess.Export
+    public int count(String blockId) {
+        boolean[] matches = new boolean[palette.length];
+        for (int i = 0; i < palette.length; i++) {
+            matches[i] = palette[i].equals(blockId);
+        }
+        int count = 0;
+        for (short state : states) {
+            if (state >= 0 && matches[state]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @HostAccess.Export
+    public short[] states() {
+        return states.clone();
+    }
+
+    @HostAccess.Export
+    public String[] palette() {
+        return palette.clone();
+    }
+
+    @HostAccess.Export
+    public int[] palette_state_ids() {
+        return paletteRawIds.clone();
+    }
+
+    @HostAccess.Export
+    public String dimension() {
+        return dimensionId;
+    }
+
+    @HostAccess.Export
+    public int[] origin() {
+        return new int[]{minX, minY, minZ};
+    }
+
+    @HostAccess.Export
+    public int[] size() {
+        return new int[]{sizeX, sizeY, sizeZ};
+    }
+}
@@ -1,51 +1,58 @@
 package minhcrafters.pyfabric.command;
 
 import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.StringReader;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.suggestion.SuggestionProvider;
 import com.mojang.brigadier.suggestion.Suggestions;
 import minhcrafters.pyfabric.SnakesAndThreads;
+import minhcrafters.pyfabric.api.BlockStateCache;
+import minhcrafters.pyfabric.api.EditHistory;
+import minhcrafters.pyfabric.api.EditJournal;
+import minhcrafters.pyfabric.metrics.ApiCallMetrics;
+import minhcrafters.pyfabric.metrics.LatencyHistogram;
+import minhcrafters.pyfabric.metrics.ScriptMetrics;
 import minhcrafters.pyfabric.python.PythonInterpreter;
+import minhcrafters.pyfabric.python.ResidentRun;
+import minhcrafters.pyfabric.python.ScriptCache;
+import minhcrafters.pyfabric.python.ScriptJob;
+import minhcrafters.pyfabric.python.ScriptCatalogue;
+import minhcrafters.pyfabric.server.ScriptScheduler;
+import minhcrafters.pyfabric.server.ScriptTaskQueue;
 import net.minecraft.command.CommandRegistryAccess;
 import net.minecraft.server.command.CommandManager;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.stream.Stream;
+import java.util.Comparator;
+import java.util.List;
 
 import static net.minecraft.server.command.CommandManager.*;
 
 public class Command {
     private static final SuggestionProvider<ServerCommandSource> SCRIPT_FILE_SUGGESTIONS = (context, builder) -> {
-        Path scriptDir = Paths.get("config", SnakesAndThreads.MOD_ID, "scripts");
-        if (!Files.isDirectory(scriptDir) || !Files.isReadable(scriptDir)) {
-            if (!Files.exists(scriptDir)) {
-                SnakesAndThreads.LOGGER.trace("Script directory for suggestions does not exist: {}", scriptDir);
-            } else {
-                SnakesAndThreads.LOGGER.warn("Cannot read script directory for suggestions: {}", scriptDir);
-            }
+        PythonInterpreter executor = SnakesAndThreads.getPythonInterpreter();
+        if (executor == null) {
             return Suggestions.empty();
         }
+        executor.getScriptCatalogue().suggest(builder.getRemaining()).forEach(builder::suggest);
+        return builder.buildFuture();
+    };
 
-        String remaining = builder.getRemaining().toLowerCase();
-
-        try (Stream<Path> stream = Files.list(scriptDir)) {
-            stream
-                    .filter(path -> !Files.isDirectory(path))
-                    .map(path -> path.getFileName().toString())
-                    .filter(fileName -> fileName.toLowerCase().endsWith(".py"))
-                    .filter(fileName -> fileName.toLowerCase().startsWith(remaining))
-                    .forEach(builder::suggest);
-        } catch (IOException e) {
-            SnakesAndThreads.LOGGER.error("Failed to list script files for command suggestions in {}: {}", scriptDir, e.getMessage());
+    // For StringArgumentType.string(), where names with characters such as '/' only parse when quoted.
+    private static final SuggestionProvider<ServerCommandSource> QUOTED_SCRIPT_FILE_SUGGESTIONS = (context, builder) -> {
+        PythonInterpreter executor = SnakesAndThreads.getPythonInterpreter();
+        if (executor == null) {
             return Suggestions.empty();
         }
-
+        String remaining = builder.getRemaining();
+        boolean quoted = remaining.startsWith("\"");
+        for (String name : executor.getScriptCatalogue().suggest(quoted ? remaining.substring(1) : remaining)) {
+            builder.suggest(quoted || needsQuotes(name) ? quote(name) : name);
+        }
         return builder.buildFuture();
     };
 
@@ -62,6 +69,79 @@ public class Command {
                 .then(argument("python_code", StringArgumentType.greedyString())
                         .executes(context -> executeScriptCode(context.getSource(), StringArgumentType.getString(context, "python_code"))))
         );
+
+        dispatcher.register(literal("pylist")
+                .requires(source -> source.hasPermissionLevel(2))
+                .executes(context -> listJobs(context.getSource()))
+        );
+
+        dispatcher.register(literal("pystop")
+                .requires(source -> source.hasPermissionLevel(2))
+                .then(argument("job_id", IntegerArgumentType.integer(1))
+                        .executes(context -> stopJob(context.getSource(), IntegerArgumentType.getInteger(context, "job_id"))))
+        );
+
+        dispatcher.register(literal("pycache")
+                .requires(source -> source.hasPermissionLevel(2))
+                .executes(context -> showScriptCacheStats(context.getSource()))
+                .then(literal("clear")
+                        .executes(context -> clearScriptCache(context.getSource())))
+        );
+
+        dispatcher.register(literal("pyschedule")
+                .requires(source -> source.hasPermissionLevel(2))
+                .then(literal("list")
+                        .executes(context -> listSchedules(context.getSource())))
+                .then(literal("remove")
+                        .then(argument("schedule_id", IntegerArgumentType.integer(1))
+                                .executes(context -> removeSchedule(context.getSource(), IntegerArgumentType.getInteger(context, "schedule_id")))))
+                .then(argument("script_file", StringArgumentType.string())
+                        .suggests(QUOTED_SCRIPT_FILE_SUGGESTIONS)
+                        .then(literal("every")
+                                .then(argument("ticks", IntegerArgumentType.integer(1))
+                                        .executes(context -> addSchedule(context.getSource(), StringArgumentType.getString(context, "script_file"),
+                                                IntegerArgumentType.getInteger(context, "ticks"), -1))
+                                        .then(literal("jitter")
+                                                .then(argument("jitter_ticks", IntegerArgumentType.integer(0))
+                                                        .executes(context -> addSchedule(context.getSource(), StringArgumentType.getString(context, "script_file"),
+                                                                IntegerArgumentType.getInteger(context, "ticks"), IntegerArgumentType.getInteger(context, "jitter_ticks"))))))))
+        );
+
+        dispatcher.register(literal("pyprofile")
+                .requires(source -> source.hasPermissionLevel(2))
+                .then(argument("script_file", StringArgumentType.greedyString())
+                        .suggests(SCRIPT_FILE_SUGGESTIONS)
+                        .executes(context -> profileScriptFile(context.getSource(), StringArgumentType.getString(context, "script_file"))))
+        );
+
+        dispatcher.register(literal("pyundo")
+                .requires(source -> source.hasPermissionLevel(2))
+                .executes(context -> undoEditSession(context.getSource()))
+        );
+
+        dispatcher.register(literal("pystats")
+                .requires(source -> source.hasPermissionLevel(2))
+                .executes(context -> showExecutorStats(context.getSource()))
+                .then(literal("scripts")
+                        .executes(context -> showScriptStats(context.getSource())))
+                .then(literal("api")
+                        .executes(context -> showApiStats(context.getSource())))
+                .then(literal("reset")
+                        .executes(context -> resetStats(context.getSource())))
+        );
+    }
+
+    private static boolean needsQuotes(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (!StringReader.isAllowedInUnquotedString(name.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String quote(String name) {
+        return "\"" + name.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
     }
 
     private static int executeScriptFile(ServerCommandSource source, String fileName) {
@@ -84,6 +164,27 @@ public class Command {
         return 1;
     }
 
+    private static int profileScriptFile(ServerCommandSource source, String fileName) {
+        PythonInterpreter executor = SnakesAndThreads.getPythonInterpreter();
+        if (executor == null) {
+            source.sendError(Text.literal("Python Executor is not available (initialization failed?). Check logs."));
+            return 0;
+        }
+        MinecraftServer server = source.getServer();
+        if (server == null) {
+            source.sendError(Text.literal("Server instance is not available (unexpected state)."));
+            return 0;
+        }
+        source.sendFeedback(() -> Text.literal("Profiling script: " + fileName).formatted(Formatting.GRAY), false);
+        executor.profileScriptFile(fileName, source, server)
+                .exceptionally(ex -> {
+                    SnakesAndThreads.LOGGER.error("Error submitting profiled script task '{}': {}", fileName, ex.getMessage(), ex);
+                    source.sendError(Text.literal("Failed to start script task: " + ex.getMessage()));
+                    return null;
+                });
+        return 1;
+    }
+
     private static int executeScriptCode(ServerCommandSource source, String code) {
         PythonInterpreter executor = SnakesAndThreads.getPythonInterpreter();
         if (executor == null) {
@@ -104,4 +205,213 @@ public class Command {
                 });
         return 1;
     }
-}
\ No newline at end of file
+
+    private static int listJobs(ServerCommandSource source) {
+        PythonInterpreter executor = SnakesAndThreads.getPythonInterpreter();
+        if (executor == null) {
+            source.sendError(Text.literal("Python interpreter is not available (initialization failed?). Check logs."));
+            return 0;
+        }
+        List<ScriptJob> jobs = executor.getJobs().stream()
+                .sorted(Comparator.comparingInt(ScriptJob::getId))
+                .toList();
+        List<ResidentRun> residents = executor.getResidentRuns().stream()
+                .sorted(Comparator.comparingInt(ResidentRun::getJobId))
+                .toList();
+        if (jobs.isEmpty() && residents.isEmpty()) {
+            source.sendFeedback(() -> Text.literal("No scripts are running.").formatted(Formatting.GRAY), false);
+            return 0;
+        }
+        source.sendFeedback(() -> Text.literal(jobs.size() + " script job(s):").formatted(Formatting.GRAY), false);
+        for (ScriptJob job : jobs) {
+            String line = String.format("#%d %s [%s] by %s, running %d ms",
+                    job.getId(), job.getScriptName(), job.getState(), job.getOwner(), job.getRunningMillis());
+            source.sendFeedback(() -> Text.literal(line).formatted(Formatting.GRAY), false);
+        }
+        for (ResidentRun resident : residents) {
+            String line = String.format("#%d %s [RESIDENT] by %s, %d subscription(s), since %d ms",
+                    resident.getJobId(), resident.getScriptName(), resident.getOwner(), resident.getSubscriptionCount(),
+                    System.currentTimeMillis() - resident.getStartedAtMillis());
+            source.sendFeedback(() -> Text.literal(line).formatted(Formatting.GRAY), false);
+        }
+        return jobs.size() + residents.size();
+    }
+
+    private static int stopJob(ServerCommandSource source, int jobId) {
+        PythonInterpreter executor = SnakesAndThreads.getPythonInterpreter();
+        if (executor == null) {
+            source.sendError(Text.literal("Python interpreter is not available (initialization failed?). Check logs."));
+            return 0;
+        }
+        if (!executor.stopJob(jobId, "stopped by " + source.getName())) {
+            source.sendError(Text.literal("No running script job with id " + jobId));
+            return 0;
+        }
+        source.sendFeedback(() -> Text.literal("Stopping script job #" + jobId).formatted(Formatting.YELLOW), true);
+        return 1;
+    }
+
+    private static int showScriptCacheStats(ServerCommandSource source) {
+        PythonInterpreter executor = SnakesAndThreads.getPythonInterpreter();
+        if (executor == null) {
+            source.sendError(Text.literal("Python interpreter is not available (initialization failed?). Check logs."));
+            return 0;
+        }
+        ScriptCache cache = executor.getScriptCache();
+        source.sendFeedback(() -> Text.literal(String.format(
+                "Script cache: %d entries, %d/%d KB, source hits %d, misses %d, parse hits %d, misses %d, evictions %d",
+                cache.size(), cache.getTotalBytes() / 1024, cache.getMaxBytes() / 1024,
+                cache.getSourceHits(), cache.getSourceMisses(),
+                cache.getParseHits(), cache.getParseMisses(),
+                cache.getEvictions())).formatted(Formatting.GRAY), false);
+        return cache.size();
+    }
+
+    private static int clearScriptCache(ServerCommandSource source) {
+        PythonInterpreter executor = SnakesAndThreads.getPythonInterpreter();
+        if (executor == null) {
+            source.sendError(Text.literal("Python interpreter is not available (initialization failed?). Check logs."));
+            return 0;
+        }
+        executor.getScriptCache().clear();
+        source.sendFeedback(() -> Text.literal("Script cache cleared.").formatted(Formatting.GRAY), true);
+        return 1;
+    }
+
+    private static int addSchedule(ServerCommandSource source, String fileName, int intervalTicks, int jitterTicks) {
+        PythonInterpreter executor = SnakesAndThreads.getPythonInterpreter();
+        if (executor == null) {
+            source.sendError(Text.literal("Python interpreter is not available (initialization failed?). Check logs."));
+            return 0;
+        }
+        ScriptCatalogue.Entry script = executor.getScriptCatalogue().lookup(fileName);
+        if (script == null) {
+            source.sendError(Text.literal("Script file not found: " + fileName));
+            return 0;
+        }
+        // Default jitter of a tenth of the interval keeps schedules with equal intervals from firing on the same tick.
+        int jitter = jitterTicks >= 0 ? jitterTicks : intervalTicks / 10;
+        ScriptScheduler.Entry entry = SnakesAndThreads.getScriptScheduler().add(script.name(), intervalTicks, jitter);
+        source.sendFeedback(() -> Text.literal(String.format("Scheduled %s every %d ticks (jitter %d) as #%d",
+                entry.getScript(), entry.getIntervalTicks(), entry.getJitterTicks(), entry.getId())).formatted(Formatting.GREEN), true);
+        return entry.getId();
+    }
+
+    private static int removeSchedule(ServerCommandSource source, int scheduleId) {
+        if (!SnakesAndThreads.getScriptScheduler().remove(scheduleId)) {
+            source.sendError(Text.literal("No schedule with id " + scheduleId));
+            return 0;
+        }
+        source.sendFeedback(() -> Text.literal("Removed schedule #" + scheduleId).formatted(Formatting.YELLOW), true);
+        return 1;
+    }
+
+    private static int listSchedules(ServerCommandSource source) {
+        ScriptScheduler scheduler = SnakesAndThreads.getScriptScheduler();
+        List<ScriptScheduler.Entry> entries = List.copyOf(scheduler.getEntries());
+        if (entries.isEmpty()) {
+            source.sendFeedback(() -> Text.literal("No scheduled scripts.").formatted(Formatting.GRAY), false);
+            return 0;
+        }
+        for (ScriptScheduler.Entry entry : entries) {
+            String line = String.format("#%d %s every %d ticks (jitter %d), %d run(s), %d skipped, %s",
+                    entry.getId(), entry.getScript(), entry.getIntervalTicks(), entry.getJitterTicks(),
+                    entry.getRuns(), entry.getSkipped(),
+                    entry.isRunning() ? "running" : "next in " + Math.max(0, entry.getNextRunTick() - scheduler.getCurrentTick()) + " ticks");
+            source.sendFeedback(() -> Text.literal(line).formatted(Formatting.GRAY), false);
+        }
+        return entries.size();
+    }
+
+    private static int undoEditSession(ServerCommandSource source) {
+        EditHistory history = SnakesAndThreads.getEditHistory();
+        EditJournal journal = history.peek(source.getName());
+        if (journal == null) {
+            source.sendError(Text.literal("No edit session to undo for " + source.getName()));
+            return 0;
+        }
+        int reverted = journal.revert(source.getServer());
+        if (reverted < 0) {
+            source.sendError(Text.literal("Cannot undo edit session #" + journal.getId() + ": dimension " + journal.getWorldId() + " is not loaded"));
+            return 0;
+        }
+        history.pop(source.getName());
+        source.sendFeedback(() -> Text.literal(String.format("Undid edit session #%d in %s (%d of %d blocks reverted)",
+                journal.getId(), journal.getWorldId(), reverted, journal.getSize())).formatted(Formatting.YELLOW), true);
+        return reverted;
+    }
+
+    private static int showExecutorStats(ServerCommandSource source) {
+        PythonInterpreter executor = SnakesAndThreads.getPythonInterpreter();
+        if (executor == null) {
+            source.sendError(Text.literal("Python interpreter is not available (initialization failed?). Check logs."));
+            return 0;
+        }
+        ScriptTaskQueue taskQueue = SnakesAndThreads.getScriptTaskQueue();
+        source.sendFeedback(() -> Text.literal(String.format(
+                "Scripts: %d queued, %d running. Server tasks: %d queued, budget %d us/tick, avg tick work %.2f ms, last drained %d",
+                executor.getJobCount(ScriptJob.State.QUEUED), executor.getJobCount(ScriptJob.State.RUNNING),
+                taskQueue.getQueueDepth(), taskQueue.getCurrentBudgetMicros(),
+                taskQueue.getAverageTickWorkMillis(), taskQueue.getLastDrainedCount())).formatted(Formatting.GRAY), false);
+        BlockStateCache blockCache = SnakesAndThreads.getBlockStateCache();
+        if (blockCache.isEnabled()) {
+            source.sendFeedback(() -> Text.literal(String.format("Block cache: %d entries, %d hits, %d misses, %d merged reads",
+                    blockCache.size(), blockCache.getHits(), blockCache.getMisses(), blockCache.getMergedReads())).formatted(Formatting.GRAY), false);
+        }
+        return 1;
+    }
+
+    private static int showScriptStats(ServerCommandSource source) {
+        List<ScriptMetrics> scripts = SnakesAndThreads.getMetrics().getScripts().stream()
+                .filter(script -> script.getRuns() > 0 || script.getApiCalls() > 0)
+                .sorted(Comparator.comparingLong(ScriptMetrics::getWallNanos).reversed())
+                .toList();
+        if (scripts.isEmpty()) {
+            source.sendFeedback(() -> Text.literal("No script runs recorded.").formatted(Formatting.GRAY), false);
+            return 0;
+        }
+        for (ScriptMetrics script : scripts) {
+            String line = String.format("%s: %d run(s), %d failed, wall %d ms, cpu %d ms, server thread %.2f ms over %d call(s)",
+                    script.getScriptName(), script.getRuns(), script.getFailures(),
+                    script.getWallNanos() / 1_000_000, script.getCpuNanos() / 1_000_000,
+                    script.getServerThreadNanos() / 1_000_000.0, script.getApiCalls());
+            source.sendFeedback(() -> Text.literal(line).formatted(Formatting.GRAY), false);
+        }
+        return scripts.size();
+    }
+
+    private static int showApiStats(ServerCommandSource source) {
+        List<ApiCallMetrics> calls = SnakesAndThreads.getMetrics().getApiCalls().stream()
+                .filter(metrics -> metrics.getExecution().getCount() > 0)
+                .sorted(Comparator.comparingLong((ApiCallMetrics metrics) -> metrics.getExecution().getTotalNanos()).reversed())
+                .toList();
+        if (calls.isEmpty()) {
+            source.sendFeedback(() -> Text.literal("No API calls recorded.").formatted(Formatting.GRAY), false);
+            return 0;
+        }
+        for (ApiCallMetrics call : calls) {
+            LatencyHistogram wait = call.getQueueWait();
+            LatencyHistogram exec = call.getExecution();
+            String line = String.format("%s: %d call(s), wait p50 %s p99 %s, exec p50 %s p99 %s max %s",
+                    call.getMethod(), exec.getCount(),
+                    formatNanos(wait.getPercentileNanos(50)), formatNanos(wait.getPercentileNanos(99)),
+                    formatNanos(exec.getPercentileNanos(50)), formatNanos(exec.getPercentileNanos(99)),
+                    formatNanos(exec.getMaxNanos()));
+            source.sendFeedback(() -> Text.literal(line).formatted(Formatting.GRAY), false);
+        }
+        return calls.size();
+    }
+
+    private static int resetStats(ServerCommandSource source) {
+        SnakesAndThreads.getMetrics().reset();
+        source.sendFeedback(() -> Text.literal("Script statistics reset.").formatted(Formatting.GRAY), true);
+        return 1;
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000) {
+            return String.format("%.2fms", nanos / 1_000_000.0);
+        }
+        return String.format("%.1fus", nanos / 1_000.0);
+    }
+}
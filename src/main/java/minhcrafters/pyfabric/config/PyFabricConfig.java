@@ -0,0 +1,234 @@
+package minhcrafters.pyfabric.config;
+
+import minhcrafters.pyfabric.SnakesAndThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+public class PyFabricConfig {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PyFabricConfig.class);
+
+    public static final Path CONFIG_DIR = Paths.get("config", SnakesAndThreads.MOD_ID);
+    private static final Path CONFIG_FILE = CONFIG_DIR.resolve("pyfabric.properties");
+
+    private static final Properties DEFAULTS = new Properties();
+
+    static {
+        DEFAULTS.setProperty("context_pool_size", String.valueOf(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2))));
+        DEFAULTS.setProperty("script_cache_max_kb", "16384");
+        DEFAULTS.setProperty("tick_budget_us", "5000");
+        DEFAULTS.setProperty("tick_budget_min_us", "500");
+        DEFAULTS.setProperty("mspt_target_ms", "50");
+        DEFAULTS.setProperty("task_queue_capacity", "4096");
+        DEFAULTS.setProperty("task_queue_offer_timeout_ms", "10000");
+        DEFAULTS.setProperty("script_time_limit_ms", "300000");
+        DEFAULTS.setProperty("script_statement_limit", "0");
+        DEFAULTS.setProperty("script_stop_grace_ms", "2000");
+        DEFAULTS.setProperty("event_buffer_size", "1024");
+        DEFAULTS.setProperty("event_batch_size", "256");
+        DEFAULTS.setProperty("prelude_modules", "");
+        DEFAULTS.setProperty("warmup_script", "");
+        DEFAULTS.setProperty("script_rescan_interval_s", "30");
+        DEFAULTS.setProperty("output_lines_per_tick", "20");
+        DEFAULTS.setProperty("output_buffer_lines", "1000");
+        DEFAULTS.setProperty("chat_lines_per_tick", "20");
+        DEFAULTS.setProperty("undo_history_size", "10");
+        DEFAULTS.setProperty("socket_endpoint", "");
+        DEFAULTS.setProperty("socket_secret", "");
+        DEFAULTS.setProperty("socket_max_frame_kb", "1024");
+        DEFAULTS.setProperty("socket_max_pipelined", "32");
+        DEFAULTS.setProperty("profile_sample_interval_ms", "10");
+        DEFAULTS.setProperty("block_cache_size", "0");
+        DEFAULTS.setProperty("store_log_initial_kb", "1024");
+        DEFAULTS.setProperty("command_cache_size", "256");
+        // Leaves a core for the server thread.
+        DEFAULTS.setProperty("parallel_workers", String.valueOf(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)));
+    }
+
+    private final Properties properties;
+
+    private PyFabricConfig(Properties properties) {
+        this.properties = properties;
+    }
+
+    public static PyFabricConfig load() {
+        Properties properties = new Properties();
+        properties.putAll(DEFAULTS);
+
+        if (Files.exists(CONFIG_FILE)) {
+            try (Reader reader = Files.newBufferedReader(CONFIG_FILE)) {
+                properties.load(reader);
+            } catch (IOException e) {
+                LOGGER.error("Failed to read config file {}, using defaults.", CONFIG_FILE, e);
+            }
+        }
+
+        if (!properties.keySet().containsAll(DEFAULTS.keySet()) || Files.notExists(CONFIG_FILE)) {
+            save(properties);
+        }
+
+        return new PyFabricConfig(properties);
+    }
+
+    private static void save(Properties properties) {
+        try {
+            Files.createDirectories(CONFIG_DIR);
+            try (Writer writer = Files.newBufferedWriter(CONFIG_FILE)) {
+                properties.store(writer, "Snakes and Threads configuration");
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to write config file {}", CONFIG_FILE, e);
+        }
+    }
+
+    public String getString(String key) {
+        return properties.getProperty(key, DEFAULTS.getProperty(key));
+    }
+
+    public int getInt(String key) {
+        String value = getString(key);
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Invalid integer '{}' for config key '{}', using default.", value, key);
+            return Integer.parseInt(DEFAULTS.getProperty(key));
+        }
+    }
+
+    public long getLong(String key) {
+        String value = getString(key);
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Invalid integer '{}' for config key '{}', using default.", value, key);
+            return Long.parseLong(DEFAULTS.getProperty(key));
+        }
+    }
+
+    public int getContextPoolSize() {
+        return Math.max(1, getInt("context_pool_size"));
+    }
+
+    public long getScriptCacheMaxBytes() {
+        return Math.max(0, getInt("script_cache_max_kb")) * 1024L;
+    }
+
+    public long getTickBudgetMicros() {
+        return Math.max(1, getInt("tick_budget_us"));
+    }
+
+    public long getMinTickBudgetMicros() {
+        return Math.max(1, getInt("tick_budget_min_us"));
+    }
+
+    public long getMsptTargetMillis() {
+        return Math.max(1, getInt("mspt_target_ms"));
+    }
+
+    public int getTaskQueueCapacity() {
+        return Math.max(1, getInt("task_queue_capacity"));
+    }
+
+    public long getTaskQueueOfferTimeoutMillis() {
+        return Math.max(0, getInt("task_queue_offer_timeout_ms"));
+    }
+
+    public long getScriptTimeLimitMillis() {
+        return Math.max(0, getLong("script_time_limit_ms"));
+    }
+
+    public long getScriptStatementLimit() {
+        return Math.max(0, getLong("script_statement_limit"));
+    }
+
+    public long getScriptStopGraceMillis() {
+        return Math.max(1, getLong("script_stop_grace_ms"));
+    }
+
+    public int getEventBufferSize() {
+        // The buffer is allocated up front for every subscription, so keep it well below the ring buffer's own limit.
+        return Math.min(1 << 20, Math.max(2, getInt("event_buffer_size")));
+    }
+
+    public int getEventBatchSize() {
+        return Math.max(1, getInt("event_batch_size"));
+    }
+
+    // Comma-separated module names imported into every new context.
+    public List<String> getPreludeModules() {
+        return Arrays.stream(getString("prelude_modules").split(","))
+                .map(String::trim)
+                .filter(module -> !module.isEmpty())
+                .toList();
+    }
+
+    // Script file (relative to the scripts directory) run once after the engine is created; empty to disable.
+    public String getWarmupScript() {
+        return getString("warmup_script").trim();
+    }
+
+    public long getScriptRescanIntervalMillis() {
+        return Math.max(0, getLong("script_rescan_interval_s")) * 1000L;
+    }
+
+    public int getOutputLinesPerTick() {
+        return Math.max(1, getInt("output_lines_per_tick"));
+    }
+
+    public int getOutputBufferLines() {
+        return Math.max(1, getInt("output_buffer_lines"));
+    }
+
+    public int getChatLinesPerTick() {
+        return Math.max(1, getInt("chat_lines_per_tick"));
+    }
+
+    public int getUndoHistorySize() {
+        return Math.max(0, getInt("undo_history_size"));
+    }
+
+    public String getSocketEndpoint() {
+        return getString("socket_endpoint").trim();
+    }
+
+    public String getSocketSecret() {
+        return getString("socket_secret").trim();
+    }
+
+    public int getSocketMaxFrameBytes() {
+        return Math.min(Math.max(1, getInt("socket_max_frame_kb")), 1 << 20) * 1024;
+    }
+
+    public int getSocketMaxPipelined() {
+        return Math.max(1, getInt("socket_max_pipelined"));
+    }
+
+    public long getProfileSampleIntervalMillis() {
+        return Math.max(1, getLong("profile_sample_interval_ms"));
+    }
+
+    public int getBlockCacheSize() {
+        return Math.max(0, getInt("block_cache_size"));
+    }
+
+    public int getStoreLogInitialBytes() {
+        return Math.min(Math.max(64, getInt("store_log_initial_kb")), 1 << 20) * 1024;
+    }
+
+    public int getCommandCacheSize() {
+        return Math.max(0, getInt("command_cache_size"));
+    }
+
+    public int getParallelWorkers() {
+        return Math.max(1, getInt("parallel_workers"));
+    }
+}
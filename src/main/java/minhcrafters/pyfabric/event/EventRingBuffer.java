@@ -0,0 +1,76 @@
+package minhcrafters.pyfabric.event;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bounded lock-free queue with per-slot sequence numbers. Any thread may offer; only one thread may drain at a time.
+public class EventRingBuffer<E> {
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    public EventRingBuffer(int requestedCapacity) {
+        if (requestedCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Ring buffer capacity " + requestedCapacity + " exceeds " + MAX_CAPACITY);
+        }
+        int capacity = requestedCapacity <= 2 ? 2 : Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.slots = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = element;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public int drainTo(List<? super E> target, int maxElements) {
+        int drained = 0;
+        long position = head.get();
+        while (drained < maxElements) {
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            target.add((E) slots[index]);
+            slots[index] = null;
+            sequences.lazySet(index, position + slots.length);
+            position++;
+            drained++;
+        }
+        head.lazySet(position);
+        return drained;
+    }
+
+    public boolean isEmpty() {
+        return sequences.get((int) (head.get() & mask)) != head.get() + 1;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,67 @@
+package minhcrafters.pyfabric.event;
+
+import org.graalvm.polyglot.Value;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+public class EventSubscription {
+    private final int id;
+    private final String type;
+    private final String owner;
+    private final Value callback;
+    private final EventRingBuffer<ScriptEvent> buffer;
+    private final Executor executor;
+    private final IntConsumer onRemoved;
+
+    final AtomicBoolean scheduled = new AtomicBoolean(false);
+    final AtomicLong pendingTicks = new AtomicLong();
+    final AtomicLong dropped = new AtomicLong();
+    final AtomicLong delivered = new AtomicLong();
+    volatile long lastTick;
+    volatile boolean active = true;
+
+    EventSubscription(int id, String type, String owner, Value callback, int bufferSize, Executor executor, IntConsumer onRemoved) {
+        this.id = id;
+        this.type = type;
+        this.owner = owner;
+        this.callback = callback;
+        this.buffer = new EventRingBuffer<>(bufferSize);
+        this.executor = executor;
+        this.onRemoved = onRemoved;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    Value getCallback() {
+        return callback;
+    }
+
+    EventRingBuffer<ScriptEvent> getBuffer() {
+        return buffer;
+    }
+
+    Executor getExecutor() {
+        return executor;
+    }
+
+    IntConsumer getOnRemoved() {
+        return onRemoved;
+    }
+
+    boolean hasPending() {
+        return pendingTicks.get() > 0 || dropped.get() > 0 || !buffer.isEmpty();
+    }
+}
@@ -0,0 +1,62 @@
+package minhcrafters.pyfabric.event;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Recorded on the server thread; only converted to a map for Python on the delivery thread.
+public class ScriptEvent {
+    private final String type;
+    private final long tick;
+    private final String player;
+    private final String dimension;
+    private final String detail;
+    private final int x, y, z;
+
+    private ScriptEvent(String type, long tick, String player, String dimension, String detail, int x, int y, int z) {
+        this.type = type;
+        this.tick = tick;
+        this.player = player;
+        this.dimension = dimension;
+        this.detail = detail;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public static ScriptEvent playerJoin(long tick, String player, String uuid) {
+        return new ScriptEvent(ScriptEventBus.PLAYER_JOIN, tick, player, null, uuid, 0, 0, 0);
+    }
+
+    public static ScriptEvent blockBreak(long tick, String player, String dimension, String blockId, int x, int y, int z) {
+        return new ScriptEvent(ScriptEventBus.BLOCK_BREAK, tick, player, dimension, blockId, x, y, z);
+    }
+
+    public static ScriptEvent chat(long tick, String player, String message) {
+        return new ScriptEvent(ScriptEventBus.CHAT, tick, player, null, message, 0, 0, 0);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("type", type);
+        map.put("tick", tick);
+        map.put("player", player);
+        switch (type) {
+            case ScriptEventBus.PLAYER_JOIN -> map.put("uuid", detail);
+            case ScriptEventBus.BLOCK_BREAK -> {
+                map.put("dimension", dimension);
+                map.put("block", detail);
+                map.put("x", x);
+                map.put("y", y);
+                map.put("z", z);
+            }
+            case ScriptEventBus.CHAT -> map.put("message", detail);
+            default -> {
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,198 @@
+package minhcrafters.pyfabric.event;
+
+import minhcrafters.pyfabric.config.PyFabricConfig;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.event.player.PlayerBlockBreakEvents;
+import net.fabricmc.fabric.api.message.v1.ServerMessageEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.minecraft.registry.Registries;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+public class ScriptEventBus {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptEventBus.class);
+
+    public static final String PLAYER_JOIN = "player_join";
+    public static final String BLOCK_BREAK = "block_break";
+    public static final String TICK = "tick";
+    public static final String CHAT = "chat";
+    public static final Set<String> EVENT_TYPES = Set.of(PLAYER_JOIN, BLOCK_BREAK, TICK, CHAT);
+
+    private final int bufferSize;
+    private final int batchSize;
+    private final Map<String, List<EventSubscription>> subscriptionsByType = new ConcurrentHashMap<>();
+    private final Map<Integer, EventSubscription> subscriptionsById = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    public ScriptEventBus(PyFabricConfig config) {
+        this.bufferSize = config.getEventBufferSize();
+        this.batchSize = config.getEventBatchSize();
+        for (String type : EVENT_TYPES) {
+            subscriptionsByType.put(type, new CopyOnWriteArrayList<>());
+        }
+    }
+
+    public void register() {
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
+            if (hasSubscribers(PLAYER_JOIN)) {
+                ServerPlayerEntity player = handler.player;
+                publish(ScriptEvent.playerJoin(server.getTicks(), player.getName().getString(), player.getUuidAsString()));
+            }
+        });
+        PlayerBlockBreakEvents.AFTER.register((world, player, pos, state, blockEntity) -> {
+            if (hasSubscribers(BLOCK_BREAK)) {
+                publish(ScriptEvent.blockBreak(world.getServer() != null ? world.getServer().getTicks() : 0L, player.getName().getString(),
+                        world.getRegistryKey().getValue().toString(), Registries.BLOCK.getId(state.getBlock()).toString(),
+                        pos.getX(), pos.getY(), pos.getZ()));
+            }
+        });
+        ServerMessageEvents.CHAT_MESSAGE.register((message, sender, params) -> {
+            if (hasSubscribers(CHAT)) {
+                publish(ScriptEvent.chat(sender.getServer() != null ? sender.getServer().getTicks() : 0L,
+                        sender.getName().getString(), message.getContent().getString()));
+            }
+        });
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            List<EventSubscription> subscriptions = subscriptionsByType.get(TICK);
+            if (subscriptions.isEmpty()) return;
+            long tick = server.getTicks();
+            for (EventSubscription subscription : subscriptions) {
+                subscription.pendingTicks.incrementAndGet();
+                subscription.lastTick = tick;
+                scheduleDelivery(subscription);
+            }
+        });
+    }
+
+    private boolean hasSubscribers(String type) {
+        return !subscriptionsByType.get(type).isEmpty();
+    }
+
+    private void publish(ScriptEvent event) {
+        for (EventSubscription subscription : subscriptionsByType.get(event.getType())) {
+            if (!subscription.getBuffer().offer(event)) {
+                subscription.dropped.incrementAndGet();
+            }
+            scheduleDelivery(subscription);
+        }
+    }
+
+    // Batches are delivered through executor, which must run them in the callback's own context (see ResidentRun);
+    // onRemoved is told the subscription id once it has been unsubscribed, for whatever reason.
+    public int subscribe(String type, Value callback, String owner, Executor executor, IntConsumer onRemoved) {
+        if (!EVENT_TYPES.contains(type)) {
+            throw new IllegalArgumentException("Unknown event type '" + type + "', expected one of " + EVENT_TYPES);
+        }
+        if (callback == null || !callback.canExecute()) {
+            throw new IllegalArgumentException("Event callback must be callable");
+        }
+        EventSubscription subscription = new EventSubscription(nextId.getAndIncrement(), type, owner, callback, bufferSize,
+                executor, onRemoved);
+        subscriptionsById.put(subscription.getId(), subscription);
+        subscriptionsByType.get(type).add(subscription);
+        LOGGER.info("Script '{}' subscribed to '{}' events (subscription #{})", owner, type, subscription.getId());
+        return subscription.getId();
+    }
+
+    public boolean unsubscribe(int id) {
+        EventSubscription subscription = subscriptionsById.remove(id);
+        if (subscription == null) {
+            return false;
+        }
+        subscription.active = false;
+        subscriptionsByType.get(subscription.getType()).remove(subscription);
+        subscription.getOnRemoved().accept(id);
+        return true;
+    }
+
+    public Collection<EventSubscription> getSubscriptions() {
+        return subscriptionsById.values();
+    }
+
+    public void clear() {
+        for (Integer id : List.copyOf(subscriptionsById.keySet())) {
+            unsubscribe(id);
+        }
+    }
+
+    private void scheduleDelivery(EventSubscription subscription) {
+        if (subscription.active && subscription.scheduled.compareAndSet(false, true)) {
+            try {
+                subscription.getExecutor().execute(() -> deliver(subscription));
+            } catch (RejectedExecutionException e) {
+                // The run that owns the callback has ended.
+                subscription.scheduled.set(false);
+                unsubscribe(subscription.getId());
+            }
+        }
+    }
+
+    private void deliver(EventSubscription subscription) {
+        try {
+            List<Map<String, Object>> batch = new ArrayList<>();
+
+            long dropped = subscription.dropped.getAndSet(0);
+            if (dropped > 0) {
+                LOGGER.warn("Subscription #{} ({}) of script '{}' fell behind, dropped {} event(s)",
+                        subscription.getId(), subscription.getType(), subscription.getOwner(), dropped);
+                Map<String, Object> droppedEvent = new HashMap<>();
+                droppedEvent.put("type", "dropped");
+                droppedEvent.put("count", dropped);
+                batch.add(droppedEvent);
+            }
+
+            long ticks = subscription.pendingTicks.getAndSet(0);
+            if (ticks > 0) {
+                Map<String, Object> tickEvent = new HashMap<>();
+                tickEvent.put("type", TICK);
+                tickEvent.put("tick", subscription.lastTick);
+                tickEvent.put("count", ticks);
+                batch.add(tickEvent);
+            }
+
+            List<ScriptEvent> events = new ArrayList<>();
+            subscription.getBuffer().drainTo(events, batchSize);
+            for (ScriptEvent event : events) {
+                batch.add(event.toMap());
+            }
+
+            if (!batch.isEmpty() && subscription.active) {
+                subscription.getCallback().execute(batch);
+                subscription.delivered.addAndGet(batch.size());
+            }
+        } catch (PolyglotException e) {
+            if (e.isCancelled() || e.isExit() || e.isResourceExhausted()) {
+                LOGGER.warn("Context of subscription #{} is gone, unsubscribing.", subscription.getId());
+                unsubscribe(subscription.getId());
+            } else {
+                LOGGER.error("Error in '{}' event callback of script '{}': {}", subscription.getType(), subscription.getOwner(), e.getMessage(), e);
+            }
+        } catch (IllegalStateException e) {
+            LOGGER.warn("Context of subscription #{} is closed, unsubscribing.", subscription.getId());
+            unsubscribe(subscription.getId());
+        } catch (Exception e) {
+            LOGGER.error("Unexpected error delivering events to subscription #{}", subscription.getId(), e);
+        } finally {
+            subscription.scheduled.set(false);
+            if (subscription.active && subscription.hasPending()) {
+                scheduleDelivery(subscription);
+            }
+        }
+    }
+}
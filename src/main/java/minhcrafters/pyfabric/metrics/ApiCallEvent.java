@@ -0,0 +1,28 @@
+package minhcrafters.pyfabric.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("pyfabric.ApiCall")
+@Label("Minecraft API Call")
+@Category({"Snakes and Threads", "API"})
+@Description("A MinecraftAPI call executed on the server thread; the event duration spans queueing and execution")
+public class ApiCallEvent extends Event {
+    @Label("Method")
+    public String method;
+
+    @Label("Script")
+    public String scriptName;
+
+    @Label("Queue Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queueWait;
+
+    @Label("Execution Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long executionTime;
+}
@@ -0,0 +1,28 @@
+package minhcrafters.pyfabric.metrics;
+
+public class ApiCallMetrics {
+    private final String method;
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram execution = new LatencyHistogram();
+
+    ApiCallMetrics(String method) {
+        this.method = method;
+    }
+
+    void reset() {
+        queueWait.reset();
+        execution.reset();
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    public LatencyHistogram getExecution() {
+        return execution;
+    }
+}
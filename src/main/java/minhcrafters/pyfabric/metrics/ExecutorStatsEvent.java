@@ -0,0 +1,29 @@
+package minhcrafters.pyfabric.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("pyfabric.ExecutorStats")
+@Label("Script Executor Statistics")
+@Category({"Snakes and Threads", "Scripts"})
+@Period("1 s")
+@StackTrace(false)
+public class ExecutorStatsEvent extends Event {
+    @Label("Queued Scripts")
+    public int queuedScripts;
+
+    @Label("Active Scripts")
+    public int activeScripts;
+
+    @Label("Queued Server Tasks")
+    public int queuedServerTasks;
+
+    @Label("Tick Budget")
+    @Timespan(Timespan.MICROSECONDS)
+    public long tickBudget;
+}
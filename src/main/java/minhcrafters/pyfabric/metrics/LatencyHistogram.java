@@ -0,0 +1,72 @@
+package minhcrafters.pyfabric.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Power-of-two buckets over nanoseconds; cheap enough to record on the server thread for every API call.
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        buckets.incrementAndGet(BUCKETS - 1 - Long.numberOfLeadingZeros(value | 1L));
+        count.increment();
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    // Not atomic with concurrent record() calls; a reset may keep a sample recorded while it runs.
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0L);
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanNanos() {
+        long n = getCount();
+        return n == 0 ? 0.0 : (double) getTotalNanos() / n;
+    }
+
+    // Upper bound of the bucket containing the given percentile (0-100).
+    public long getPercentileNanos(double percentile) {
+        long total = 0L;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+        long threshold = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= threshold) {
+                return i >= 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+            }
+        }
+        return getMaxNanos();
+    }
+}
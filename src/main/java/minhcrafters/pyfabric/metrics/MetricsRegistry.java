@@ -0,0 +1,67 @@
+package minhcrafters.pyfabric.metrics;
+
+import jdk.jfr.FlightRecorder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+public class MetricsRegistry {
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final Map<String, ApiCallMetrics> apiCalls = new ConcurrentHashMap<>();
+    private final Map<String, ScriptMetrics> scripts = new ConcurrentHashMap<>();
+
+    public ApiCallMetrics api(String method) {
+        return apiCalls.computeIfAbsent(method, ApiCallMetrics::new);
+    }
+
+    public ScriptMetrics script(String scriptName) {
+        return scripts.computeIfAbsent(scriptName, ScriptMetrics::new);
+    }
+
+    public Collection<ApiCallMetrics> getApiCalls() {
+        return apiCalls.values();
+    }
+
+    public Collection<ScriptMetrics> getScripts() {
+        return scripts.values();
+    }
+
+    // Resets in place: running scripts keep recording into the ScriptMetrics they looked up when they started.
+    public void reset() {
+        apiCalls.values().forEach(ApiCallMetrics::reset);
+        scripts.values().forEach(ScriptMetrics::reset);
+    }
+
+    public void recordApiCall(String method, ScriptMetrics script, ApiCallEvent event, long queueWaitNanos, long executionNanos) {
+        ApiCallMetrics metrics = api(method);
+        metrics.getQueueWait().record(queueWaitNanos);
+        metrics.getExecution().record(executionNanos);
+        if (script != null) {
+            script.recordServerThreadTime(executionNanos);
+        }
+        if (event != null && event.shouldCommit()) {
+            event.method = method;
+            event.scriptName = script != null ? script.getScriptName() : null;
+            event.queueWait = queueWaitNanos;
+            event.executionTime = executionNanos;
+            event.commit();
+        }
+    }
+
+    public static long currentThreadCpuNanos() {
+        return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0L;
+    }
+
+    public static void registerExecutorStats(Consumer<ExecutorStatsEvent> filler) {
+        FlightRecorder.addPeriodicEvent(ExecutorStatsEvent.class, () -> {
+            ExecutorStatsEvent event = new ExecutorStatsEvent();
+            filler.accept(event);
+            event.commit();
+        });
+    }
+}
@@ -0,0 +1,70 @@
+package minhcrafters.pyfabric.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class ScriptMetrics {
+    private final String scriptName;
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LongAdder wallNanos = new LongAdder();
+    private final LongAdder serverThreadNanos = new LongAdder();
+    private final LongAdder apiCalls = new LongAdder();
+
+    ScriptMetrics(String scriptName) {
+        this.scriptName = scriptName;
+    }
+
+    public void recordRun(boolean success, long wallNanos, long cpuNanos) {
+        runs.increment();
+        if (!success) {
+            failures.increment();
+        }
+        this.wallNanos.add(wallNanos);
+        if (cpuNanos > 0) {
+            this.cpuNanos.add(cpuNanos);
+        }
+    }
+
+    public void recordServerThreadTime(long nanos) {
+        apiCalls.increment();
+        serverThreadNanos.add(nanos);
+    }
+
+    void reset() {
+        runs.reset();
+        failures.reset();
+        cpuNanos.reset();
+        wallNanos.reset();
+        serverThreadNanos.reset();
+        apiCalls.reset();
+    }
+
+    public String getScriptName() {
+        return scriptName;
+    }
+
+    public long getRuns() {
+        return runs.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos.sum();
+    }
+
+    public long getWallNanos() {
+        return wallNanos.sum();
+    }
+
+    public long getServerThreadNanos() {
+        return serverThreadNanos.sum();
+    }
+
+    public long getApiCalls() {
+        return apiCalls.sum();
+    }
+}
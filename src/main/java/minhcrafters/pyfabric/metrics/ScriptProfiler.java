@@ -0,0 +1,232 @@
+package minhcrafters.pyfabric.metrics;
+
+import minhcrafters.pyfabric.config.PyFabricConfig;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.tools.profiler.CPUSampler;
+import org.graalvm.tools.profiler.StackTraceEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Samples the Python stack of one script thread with the GraalVM CPU sampler and writes the result as collapsed
+// stacks (one "frame;frame;frame count" line per distinct stack), the input format of flamegraph.pl and speedscope.
+// Time spent inside MinecraftAPI calls ends in a "[host] <method>" frame, time blocked on the server thread in a
+// "[server-wait]" frame, so both show up as separate categories next to the Python code.
+public class ScriptProfiler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptProfiler.class);
+    public static final Path PROFILE_DIR = PyFabricConfig.CONFIG_DIR.resolve("profiles");
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final String HOST_FRAME = "[host]";
+    private static final String SERVER_WAIT_FRAME = "[server-wait]";
+
+    public enum Phase {
+        GUEST,
+        HOST,
+        SERVER_WAIT
+    }
+
+    public record Mark(Phase phase, String method) {
+        private static final Mark GUEST = new Mark(Phase.GUEST, null);
+    }
+
+    // Profilers by the script thread they sample; MinecraftAPI checks it around host calls.
+    private static final Map<Thread, ScriptProfiler> ACTIVE = new ConcurrentHashMap<>();
+
+    private final String scriptName;
+    private final long intervalMillis;
+    private final Map<String, Long> stacks = new HashMap<>();
+    private volatile Mark mark = Mark.GUEST;
+    private volatile Thread samplerThread;
+    private Thread target;
+    private long samples = 0L;
+    private long hostSamples = 0L;
+    private long serverWaitSamples = 0L;
+
+    public ScriptProfiler(String scriptName, long intervalMillis) {
+        this.scriptName = scriptName;
+        this.intervalMillis = Math.max(1L, intervalMillis);
+    }
+
+    public static ScriptProfiler forCurrentThread() {
+        return ACTIVE.isEmpty() ? null : ACTIVE.get(Thread.currentThread());
+    }
+
+    // Returns the previous mark so nested calls can restore it.
+    public Mark mark(Phase phase, String method) {
+        Mark previous = mark;
+        // A wait inside a host call keeps the name of that call.
+        mark = new Mark(phase, method != null ? method : previous.method());
+        return previous;
+    }
+
+    public void restore(Mark previous) {
+        mark = previous;
+    }
+
+    // Starts sampling the calling thread. Returns false if the sampler tool is not available.
+    public boolean start(Engine engine) {
+        CPUSampler sampler;
+        try {
+            sampler = CPUSampler.find(engine);
+        } catch (RuntimeException | LinkageError e) {
+            LOGGER.error("GraalVM CPU sampler is not available: {}", e.getMessage());
+            return false;
+        }
+        if (sampler == null) {
+            LOGGER.error("GraalVM CPU sampler is not available on this engine.");
+            return false;
+        }
+        target = Thread.currentThread();
+        ACTIVE.put(target, this);
+        Thread thread = new Thread(() -> sampleLoop(sampler), "PyFabric-Profiler");
+        thread.setDaemon(true);
+        samplerThread = thread;
+        thread.start();
+        return true;
+    }
+
+    // Stops sampling and writes the collapsed stacks. Returns the written file, or null if nothing was written.
+    public Path finish() {
+        Thread thread = samplerThread;
+        samplerThread = null;
+        if (thread == null) {
+            return null;
+        }
+        ACTIVE.remove(target, this);
+        thread.interrupt();
+        // The sampler has to be gone before write() reads its map, even if this thread was interrupted by a stop.
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return write();
+    }
+
+    private void sampleLoop(CPUSampler sampler) {
+        while (samplerThread == Thread.currentThread()) {
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                Mark current = mark;
+                List<StackTraceEntry> entries = sampler.takeSample().get(target);
+                record(entries, current);
+            } catch (RuntimeException e) {
+                // The engine may be closed underneath us when the server stops.
+                LOGGER.debug("Stopping profiler for {}: {}", scriptName, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void record(List<StackTraceEntry> entries, Mark current) {
+        boolean hasGuestFrames = entries != null && !entries.isEmpty();
+        if (!hasGuestFrames && current.phase() == Phase.GUEST) {
+            // Not in Python code and not in a host call, e.g. still waiting for a context.
+            return;
+        }
+        StringBuilder stack = new StringBuilder();
+        if (hasGuestFrames) {
+            // Entries are innermost first; collapsed stacks are outermost first.
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                if (!stack.isEmpty()) {
+                    stack.append(';');
+                }
+                stack.append(frameName(entries.get(i)));
+            }
+        }
+        if (current.phase() != Phase.GUEST) {
+            if (!stack.isEmpty()) {
+                stack.append(';');
+            }
+            stack.append(current.phase() == Phase.HOST ? HOST_FRAME : SERVER_WAIT_FRAME);
+            if (current.method() != null) {
+                stack.append(' ').append(current.method());
+            }
+            if (current.phase() == Phase.HOST) {
+                hostSamples++;
+            } else {
+                serverWaitSamples++;
+            }
+        }
+        stacks.merge(stack.toString(), 1L, Long::sum);
+        samples++;
+    }
+
+    private static String frameName(StackTraceEntry entry) {
+        String name = entry.getRootName() != null ? entry.getRootName() : "<unknown>";
+        StackTraceElement element = entry.toStackTraceElement();
+        String file = element.getFileName();
+        // ';' separates frames and the last space separates the count, so neither may appear in a frame name.
+        return (file != null ? name + " (" + file + ")" : name).replace(';', ',');
+    }
+
+    private Path write() {
+        if (stacks.isEmpty()) {
+            return null;
+        }
+        String safeName = Path.of(scriptName).getFileName().toString().replaceAll("[^A-Za-z0-9._-]", "_");
+        Path file = PROFILE_DIR.resolve(safeName + "-" + LocalDateTime.now().format(FILE_TIME) + ".collapsed");
+        List<Map.Entry<String, Long>> sorted = new ArrayList<>(stacks.entrySet());
+        sorted.sort(Map.Entry.comparingByKey());
+        try {
+            Files.createDirectories(PROFILE_DIR);
+            try (Writer writer = Files.newBufferedWriter(file)) {
+                for (Map.Entry<String, Long> entry : sorted) {
+                    writer.write(entry.getKey());
+                    writer.write(' ');
+                    writer.write(Long.toString(entry.getValue()));
+                    writer.write('\n');
+                }
+            }
+            return file;
+        } catch (IOException e) {
+            LOGGER.error("Failed to write profile for {} to {}", scriptName, file, e);
+            return null;
+        }
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public long getHostSamples() {
+        return hostSamples;
+    }
+
+    public long getServerWaitSamples() {
+        return serverWaitSamples;
+    }
+
+    // Frames with the most samples at the top of the stack, most expensive first.
+    public List<Map.Entry<String, Long>> getTopFrames(int limit) {
+        Map<String, Long> selfSamples = new HashMap<>();
+        for (Map.Entry<String, Long> entry : stacks.entrySet()) {
+            String stack = entry.getKey();
+            selfSamples.merge(stack.substring(stack.lastIndexOf(';') + 1), entry.getValue(), Long::sum);
+        }
+        List<Map.Entry<String, Long>> top = new ArrayList<>(selfSamples.entrySet());
+        top.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return top.subList(0, Math.min(limit, top.size()));
+    }
+}
@@ -0,0 +1,31 @@
+package minhcrafters.pyfabric.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("pyfabric.ScriptRun")
+@Label("Python Script Run")
+@Category({"Snakes and Threads", "Scripts"})
+@Description("One execution of a Python script")
+public class ScriptRunEvent extends Event {
+    @Label("Script")
+    public String scriptName;
+
+    @Label("Job Id")
+    public int jobId;
+
+    @Label("Success")
+    public boolean success;
+
+    @Label("CPU Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long cpuTime;
+
+    @Label("Server Thread Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long serverThreadTime;
+}
@@ -0,0 +1,24 @@
+package minhcrafters.pyfabric.mixin;
+
+import minhcrafters.pyfabric.SnakesAndThreads;
+import minhcrafters.pyfabric.api.BlockStateCache;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.WorldChunk;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+// Every block change in a loaded chunk goes through here, which keeps the script block cache exact.
+@Mixin(WorldChunk.class)
+public abstract class WorldChunkMixin {
+	@Inject(at = @At("HEAD"), method = "setBlockState")
+	private void pyfabric$invalidateBlockCache(BlockPos pos, BlockState state, boolean moved, CallbackInfoReturnable<BlockState> info) {
+		BlockStateCache cache = SnakesAndThreads.getBlockStateCache();
+		WorldChunk chunk = (WorldChunk) (Object) this;
+		if (cache != null && !chunk.getWorld().isClient()) {
+			cache.invalidate(chunk.getWorld(), pos);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package minhcrafters.pyfabric.python;
+
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class CachedScript {
+    private final Path path;
+    private final long lastModified;
+    private final long size;
+    private final Source source;
+    private final boolean resident;
+    private final Map<PooledContext, Value> parsedByContext = new ConcurrentHashMap<>();
+
+    CachedScript(Path path, long lastModified, long size, Source source) {
+        this.path = path;
+        this.lastModified = lastModified;
+        this.size = size;
+        this.source = source;
+        this.resident = ScriptNamespace.declaresResident(source.getCharacters());
+    }
+
+    public static CachedScript uncached(Source source) {
+        return new CachedScript(null, 0L, 0L, source);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    public boolean isResident() {
+        return resident;
+    }
+
+    // The source text plus a rough guess for every context holding a compiled copy, at twice the text each.
+    public long getEstimatedBytes() {
+        long sourceBytes = source.getLength() * 2L;
+        return sourceBytes + parsedByContext.size() * sourceBytes * 2L;
+    }
+
+    boolean matches(long lastModified, long size) {
+        return this.lastModified == lastModified && this.size == size;
+    }
+
+    void forgetContext(PooledContext pooled) {
+        parsedByContext.remove(pooled);
+    }
+
+    void forgetAllContexts() {
+        parsedByContext.clear();
+    }
+
+    boolean isParsedFor(PooledContext pooled) {
+        return parsedByContext.containsKey(pooled);
+    }
+
+    // Must be called while the given context is entered. The result is run through ScriptNamespace.run.
+    Value parsedFor(PooledContext pooled) {
+        Value parsed = parsedByContext.get(pooled);
+        if (parsed == null) {
+            parsed = ScriptNamespace.compile(pooled, source);
+            if (path != null) {
+                parsedByContext.put(pooled, parsed);
+            }
+        }
+        return parsed;
+    }
+}
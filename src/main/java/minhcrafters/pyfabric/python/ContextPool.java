@@ -0,0 +1,169 @@
+package minhcrafters.pyfabric.python;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.ResourceLimits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class ContextPool implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContextPool.class);
+
+    private final Engine engine;
+    private final boolean ownsEngine;
+    private final int maxSize;
+    private final ResourceLimits resourceLimits;
+    private final Consumer<Context> initializer;
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final BlockingQueue<PooledContext> idleContexts = new LinkedBlockingQueue<>();
+    private final List<PooledContext> allContexts = new CopyOnWriteArrayList<>();
+    private volatile boolean closed = false;
+
+    public ContextPool(int maxSize, long statementLimit) {
+        this(maxSize, statementLimit, context -> {
+        });
+    }
+
+    // The initializer runs once on every new context before it is handed out, e.g. to import prelude modules.
+    public ContextPool(int maxSize, long statementLimit, Consumer<Context> initializer) {
+        this(Engine.newBuilder("python")
+                .allowExperimentalOptions(true)
+                .option("engine.WarnInterpreterOnly", "false")
+                .build(), true, maxSize, statementLimit, initializer);
+    }
+
+    // A pool on another pool's engine, which stays open when this pool is closed.
+    public ContextPool(Engine engine, int maxSize, long statementLimit, Consumer<Context> initializer) {
+        this(engine, false, maxSize, statementLimit, initializer);
+    }
+
+    private ContextPool(Engine engine, boolean ownsEngine, int maxSize, long statementLimit, Consumer<Context> initializer) {
+        this.engine = engine;
+        this.ownsEngine = ownsEngine;
+        this.maxSize = maxSize;
+        this.initializer = initializer;
+        // Contexts sharing an engine must all use the same statement limit.
+        this.resourceLimits = statementLimit > 0 ? ResourceLimits.newBuilder().statementLimit(statementLimit, null).build() : null;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getCreatedCount() {
+        return allContexts.size();
+    }
+
+    public int getIdleCount() {
+        return idleContexts.size();
+    }
+
+    public Context.Builder newContextBuilder() {
+        Context.Builder builder = Context.newBuilder("python")
+                .engine(engine)
+                .allowExperimentalOptions(true)
+                .option("python.ForceImportSite", "true")
+                .option("python.EmulateJython", "true")
+                // Output is buffered per run on our side (see OutputRouter), so Python should hand it over immediately.
+                .option("python.UnbufferedIO", "true")
+                .allowAllAccess(true);
+        if (resourceLimits != null) {
+            builder.resourceLimits(resourceLimits);
+        }
+        return builder;
+    }
+
+    public PooledContext acquire() throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("Context pool is closed");
+        }
+        PooledContext pooled = idleContexts.poll();
+        if (pooled != null) {
+            return pooled;
+        }
+        synchronized (this) {
+            if (allContexts.size() < maxSize) {
+                return createContext();
+            }
+        }
+        return idleContexts.take();
+    }
+
+    public void release(PooledContext pooled) {
+        if (closed) {
+            return;
+        }
+        idleContexts.offer(pooled);
+    }
+
+    // Closes a context that was cancelled or exhausted its limits; a fresh one is created on the next acquire.
+    public void discard(PooledContext pooled) {
+        allContexts.remove(pooled);
+        try {
+            pooled.getContext().close(true);
+        } catch (Exception e) {
+            LOGGER.error("Error closing discarded GraalVM context #{}", pooled.getId(), e);
+        }
+        LOGGER.info("Discarded GraalVM Python context #{}", pooled.getId());
+    }
+
+    // Takes an acquired context out of the pool for good, e.g. to keep a resident script's callbacks alive; a fresh
+    // one is created on the next acquire. The caller closes it.
+    public void detach(PooledContext pooled) {
+        allContexts.remove(pooled);
+        LOGGER.info("Detached GraalVM Python context #{} from the pool", pooled.getId());
+    }
+
+    private PooledContext createContext() {
+        int id = nextId.getAndIncrement();
+        LOGGER.info("Creating GraalVM Python context #{} (pool size {})...", id, maxSize);
+        OutputRouter output = new OutputRouter(id);
+        Context context = newContextBuilder()
+                .out(output.getStdout())
+                .err(output.getStderr())
+                .build();
+        try {
+            initializer.accept(context);
+        } catch (RuntimeException e) {
+            context.close(true);
+            throw e;
+        }
+        PooledContext pooled = new PooledContext(id, context, output);
+        allContexts.add(pooled);
+        LOGGER.info("GraalVM Python context #{} created successfully.", id);
+        return pooled;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        idleContexts.clear();
+        for (PooledContext pooled : allContexts) {
+            try {
+                pooled.getContext().close(true);
+            } catch (Exception e) {
+                LOGGER.error("Error closing GraalVM context #{}", pooled.getId(), e);
+            }
+        }
+        allContexts.clear();
+        if (!ownsEngine) {
+            return;
+        }
+        try {
+            engine.close(true);
+        } catch (Exception e) {
+            LOGGER.error("Error closing GraalVM engine", e);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package minhcrafters.pyfabric.python;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// stdout/stderr of one pooled context. Complete lines go to the output of the run currently using the context, or to
+// the log when no run is attached (e.g. event callbacks after the script returned).
+public class OutputRouter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutputRouter.class);
+    private static final int MAX_LINE_BYTES = 4096;
+
+    private final int contextId;
+    private final LineStream stdout = new LineStream(false);
+    private final LineStream stderr = new LineStream(true);
+    private volatile ScriptOutput target;
+
+    OutputRouter(int contextId) {
+        this.contextId = contextId;
+    }
+
+    OutputStream getStdout() {
+        return stdout;
+    }
+
+    OutputStream getStderr() {
+        return stderr;
+    }
+
+    void attach(ScriptOutput output) {
+        target = output;
+    }
+
+    // Flushes partial lines to the current run before detaching it.
+    void detach() {
+        stdout.flushLine();
+        stderr.flushLine();
+        target = null;
+    }
+
+    private void emit(String line, boolean error) {
+        ScriptOutput output = target;
+        if (output != null) {
+            output.appendLine(line, error);
+        } else if (error) {
+            LOGGER.warn("[Python #{}] {}", contextId, line);
+        } else {
+            LOGGER.info("[Python #{}] {}", contextId, line);
+        }
+    }
+
+    private class LineStream extends OutputStream {
+        private final boolean error;
+        private final byte[] line = new byte[MAX_LINE_BYTES];
+        private int size;
+
+        private LineStream(boolean error) {
+            this.error = error;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (b == '\n') {
+                flushLine();
+                return;
+            }
+            if (size == line.length) {
+                flushFullLine();
+            }
+            line[size++] = (byte) b;
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) {
+            int start = offset;
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                if (bytes[i] == '\n') {
+                    append(bytes, start, i - start);
+                    flushLine();
+                    start = i + 1;
+                }
+            }
+            append(bytes, start, end - start);
+        }
+
+        // Copies in pieces so a long chunk without newlines is split at MAX_LINE_BYTES like byte-wise writes are.
+        private void append(byte[] bytes, int offset, int length) {
+            while (length > 0) {
+                if (size == line.length) {
+                    flushFullLine();
+                }
+                int count = Math.min(length, line.length - size);
+                System.arraycopy(bytes, offset, line, size, count);
+                size += count;
+                offset += count;
+                length -= count;
+            }
+        }
+
+        // The line hit the cap: emits it up to the last complete UTF-8 character and keeps the rest of a character
+        // that was cut in half for the next line.
+        private void flushFullLine() {
+            int cut = characterBoundary();
+            emit(new String(line, 0, cut, StandardCharsets.UTF_8), error);
+            System.arraycopy(line, cut, line, 0, size - cut);
+            size -= cut;
+        }
+
+        // Start of the trailing UTF-8 sequence if it is incomplete, otherwise the line length.
+        private int characterBoundary() {
+            int lead = size - 1;
+            while (lead > 0 && size - lead < 4 && (line[lead] & 0xC0) == 0x80) {
+                lead--;
+            }
+            int first = line[lead] & 0xFF;
+            int expected = first >= 0xF0 ? 4 : first >= 0xE0 ? 3 : first >= 0xC0 ? 2 : 1;
+            return lead > 0 && size - lead < expected ? lead : size;
+        }
+
+        private synchronized void flushLine() {
+            if (size == 0) {
+                return;
+            }
+            int length = size > 0 && line[size - 1] == '\r' ? size - 1 : size;
+            String text = new String(line, 0, length, StandardCharsets.UTF_8);
+            size = 0;
+            emit(text, error);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package minhcrafters.pyfabric.python;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Backs mc.parallel_map: splits a list into chunks and maps a function over them on a fork-join pool, each worker
+// thread using its own context on the script engine, so compiled code is shared and pure computation scales with
+// cores. Python objects cannot cross contexts: the function travels as marshalled code plus the module globals it
+// refers to, items and results as pickles. Workers have no mc object and never touch the server thread.
+public class ParallelWorkers implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelWorkers.class);
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    // Evaluated in the calling script's context; returns the pack/unpack helpers.
+    private static final Source CALLER_HELPER = Source.newBuilder("python", """
+            def __pyfabric_parallel():
+                import marshal
+                import pickle
+                import types
+
+                def referenced_names(code):
+                    names = set(code.co_names)
+                    for const in code.co_consts:
+                        if isinstance(const, types.CodeType):
+                            names |= referenced_names(const)
+                    return names
+
+                def pack_function(fn, functions, modules, data):
+                    if fn.__closure__:
+                        raise ValueError(f"parallel_map cannot ship {fn.__name__}(): it uses variables of an enclosing function")
+                    for name in referenced_names(fn.__code__):
+                        if name == "mc" or name in functions or name in modules or name in data or name not in fn.__globals__:
+                            continue
+                        value = fn.__globals__[name]
+                        if isinstance(value, types.ModuleType):
+                            modules[name] = value.__name__
+                        elif isinstance(value, types.FunctionType):
+                            functions[name] = None
+                            functions[name] = pack_function(value, functions, modules, data)
+                        else:
+                            data[name] = value
+                    return marshal.dumps(fn.__code__), fn.__defaults__, fn.__kwdefaults__
+
+                def pack(fn, items, chunk_size, workers):
+                    items = list(items)
+                    if chunk_size <= 0:
+                        chunk_size = max(1, -(-len(items) // (workers * %d)))
+                    spec = {"functions": {}, "modules": {}, "data": {}}
+                    if isinstance(fn, types.FunctionType):
+                        spec["entry"] = pack_function(fn, spec["functions"], spec["modules"], spec["data"])
+                    else:
+                        spec["object"] = fn
+                    chunks = [pickle.dumps(items[i:i + chunk_size]).decode("latin-1") for i in range(0, len(items), chunk_size)]
+                    return pickle.dumps(spec).decode("latin-1"), chunks
+
+                def unpack(results):
+                    out = []
+                    for chunk in results:
+                        out.extend(pickle.loads(str(chunk).encode("latin-1")))
+                    return out
+
+                return types.SimpleNamespace(pack=pack, unpack=unpack)
+
+            __pyfabric_parallel()
+            """.formatted(CHUNKS_PER_WORKER), "<pyfabric-parallel>").buildLiteral();
+
+    // Evaluated once in every worker context. The last unpacked function is kept, since all chunks of a call share it.
+    private static final Source WORKER_HELPER = Source.newBuilder("python", """
+            def __pyfabric_worker():
+                import builtins
+                import importlib
+                import marshal
+                import pickle
+                import types
+
+                last = [None, None]
+
+                def make_function(name, packed, namespace):
+                    code, defaults, kwdefaults = packed
+                    fn = types.FunctionType(marshal.loads(code), namespace, name, defaults)
+                    fn.__kwdefaults__ = kwdefaults
+                    return fn
+
+                def load(packed):
+                    spec = pickle.loads(packed.encode("latin-1"))
+                    if "object" in spec:
+                        return spec["object"]
+                    namespace = {"__builtins__": builtins, "__name__": "__pyfabric_worker__"}
+                    for name, module in spec["modules"].items():
+                        namespace[name] = importlib.import_module(module)
+                    namespace.update(spec["data"])
+                    for name, function in spec["functions"].items():
+                        namespace[name] = make_function(name, function, namespace)
+                    return make_function("parallel_map_function", spec["entry"], namespace)
+
+                def run(packed, chunk):
+                    if last[0] != packed:
+                        last[0], last[1] = packed, load(packed)
+                    fn = last[1]
+                    return pickle.dumps([fn(item) for item in pickle.loads(chunk.encode("latin-1"))]).decode("latin-1")
+
+                return run
+
+            __pyfabric_worker_run = __pyfabric_worker()
+            """, "<pyfabric-worker>").buildLiteral();
+
+    private final int parallelism;
+    private final long stopGraceMillis;
+    private final ContextPool workers;
+    private final ForkJoinPool forkJoinPool;
+
+    public ParallelWorkers(Engine engine, int parallelism, long statementLimit, long stopGraceMillis) {
+        this.parallelism = parallelism;
+        this.stopGraceMillis = stopGraceMillis;
+        this.workers = new ContextPool(engine, parallelism, statementLimit, context -> context.eval(WORKER_HELPER));
+        this.forkJoinPool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("PyFabric-ParallelWorker-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    // Called on a script thread with the caller's context entered. Returns a Python list with one result per item, in
+    // order. If any chunk fails, chunks that have not started yet are skipped and the first failure is thrown. If the
+    // caller is stopped while waiting, the chunks still running are interrupted the same way (see cancel).
+    public Value map(Value function, Value items, int chunkSize) {
+        Value helper = Context.getCurrent().eval(CALLER_HELPER);
+        Value packed = helper.invokeMember("pack", function, items, chunkSize, parallelism);
+        String packedFunction = packed.getArrayElement(0).asString();
+        Value packedChunks = packed.getArrayElement(1);
+        String[] chunks = new String[(int) packedChunks.getArraySize()];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = packedChunks.getArrayElement(i).asString();
+        }
+
+        String[] results = new String[chunks.length];
+        AtomicBoolean stopped = new AtomicBoolean();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        // The worker contexts this call is running chunks in; guarded by itself.
+        Set<PooledContext> running = new HashSet<>();
+        List<Future<?>> tasks = new ArrayList<>(chunks.length);
+        for (int i = 0; i < chunks.length; i++) {
+            int index = i;
+            tasks.add(forkJoinPool.submit(() -> {
+                if (stopped.get()) {
+                    return;
+                }
+                try {
+                    results[index] = runChunk(packedFunction, chunks[index], running, stopped);
+                } catch (RuntimeException e) {
+                    stopped.set(true);
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        try {
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException | CancellationException e) {
+            cancel(tasks, running, stopped);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for parallel_map workers");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("parallel_map worker task failed", e.getCause());
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return helper.invokeMember("unpack", (Object) results);
+    }
+
+    // Stops the chunks of a cancelled call: queued ones are skipped and running ones interrupted within the stop grace
+    // period, their contexts cancelled (and discarded) if they do not react. Holding the lock keeps a chunk from
+    // handing its context back to the pool, and so to another call, while it is being interrupted.
+    private void cancel(List<Future<?>> tasks, Set<PooledContext> running, AtomicBoolean stopped) {
+        boolean interrupted = Thread.interrupted();
+        long deadline = System.nanoTime() + stopGraceMillis * 1_000_000L;
+        synchronized (running) {
+            stopped.set(true);
+            for (Future<?> task : tasks) {
+                task.cancel(false);
+            }
+            for (PooledContext pooled : running) {
+                long remainingMillis = Math.max(1, (deadline - System.nanoTime()) / 1_000_000L);
+                try {
+                    pooled.getContext().interrupt(Duration.ofMillis(remainingMillis));
+                } catch (TimeoutException e) {
+                    LOGGER.warn("parallel_map worker context #{} did not react to interruption, cancelling it.", pooled.getId());
+                    try {
+                        pooled.getContext().close(true);
+                    } catch (Exception closeException) {
+                        LOGGER.error("Error cancelling parallel_map worker context #{}", pooled.getId(), closeException);
+                    }
+                } catch (Exception e) {
+                    LOGGER.debug("Interrupting parallel_map worker context #{} failed: {}", pooled.getId(), e.getMessage());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String runChunk(String packedFunction, String chunk, Set<PooledContext> running, AtomicBoolean stopped) {
+        PooledContext pooled;
+        try {
+            pooled = workers.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a worker context");
+        }
+        synchronized (running) {
+            if (stopped.get()) {
+                workers.release(pooled);
+                throw new CancellationException("parallel_map was cancelled");
+            }
+            running.add(pooled);
+        }
+        boolean discard = false;
+        Context context = pooled.getContext();
+        context.enter();
+        try {
+            context.resetLimits();
+            return context.getBindings("python").getMember("__pyfabric_worker_run").execute(packedFunction, chunk).asString();
+        } catch (PolyglotException e) {
+            discard = e.isCancelled() || e.isResourceExhausted();
+            // Only the message crosses over: the exception belongs to the worker's context.
+            throw new IllegalStateException("parallel_map worker failed: " + e.getMessage());
+        } finally {
+            context.leave();
+            synchronized (running) {
+                running.remove(pooled);
+            }
+            if (discard) {
+                workers.discard(pooled);
+            } else {
+                workers.release(pooled);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        forkJoinPool.shutdownNow();
+        workers.close();
+        LOGGER.info("Parallel worker contexts closed.");
+    }
+}
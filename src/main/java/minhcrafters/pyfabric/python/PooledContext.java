@@ -0,0 +1,38 @@
+package minhcrafters.pyfabric.python;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Value;
+
+public class PooledContext {
+    private final int id;
+    private final Context context;
+    private final OutputRouter output;
+    // Created on first use by ScriptNamespace, while the context is entered.
+    private Value namespaceHelper;
+
+    PooledContext(int id, Context context, OutputRouter output) {
+        this.id = id;
+        this.context = context;
+        this.output = output;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    OutputRouter getOutput() {
+        return output;
+    }
+
+    Value getNamespaceHelper() {
+        return namespaceHelper;
+    }
+
+    void setNamespaceHelper(Value namespaceHelper) {
+        this.namespaceHelper = namespaceHelper;
+    }
+}
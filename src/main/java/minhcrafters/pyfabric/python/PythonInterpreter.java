@@ -2,6 +2,11 @@ package minhcrafters.pyfabric.python;
 
 import minhcrafters.pyfabric.SnakesAndThreads;
 import minhcrafters.pyfabric.api.MinecraftAPI;
+import minhcrafters.pyfabric.config.PyFabricConfig;
+import minhcrafters.pyfabric.metrics.MetricsRegistry;
+import minhcrafters.pyfabric.metrics.ScriptMetrics;
+import minhcrafters.pyfabric.metrics.ScriptProfiler;
+import minhcrafters.pyfabric.metrics.ScriptRunEvent;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.text.Text;
@@ -16,49 +21,199 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
 public class PythonInterpreter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PythonInterpreter.class);
-    private Context polyglotContext;
-    private ExecutorService scriptExecutorService;
+    private final PyFabricConfig config;
+    private volatile ContextPool contextPool;
+    private volatile ParallelWorkers parallelWorkers;
+    private volatile CompletableFuture<Void> readiness;
+    private final ScriptCache scriptCache;
+    private final ScriptCatalogue scriptCatalogue;
+    private volatile ExecutorService scriptExecutorService;
+    private final ScheduledExecutorService watchdogExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread t = new Thread(runnable, "PyFabric-ScriptWatchdog");
+        t.setDaemon(true);
+        return t;
+    });
+    // Runs the blocking part of stopping a job, so the watchdog keeps firing other time limits on time.
+    private final ExecutorService stopExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread t = new Thread(runnable, "PyFabric-ScriptStopper");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<Integer, ScriptJob> jobs = new ConcurrentHashMap<>();
+    // Runs that returned with event subscriptions left, by job id.
+    private final Map<Integer, ResidentRun> residents = new ConcurrentHashMap<>();
+    private final AtomicInteger nextJobId = new AtomicInteger(1);
 
     private static final Path SCRIPT_DIR = Paths.get("config", SnakesAndThreads.MOD_ID, "scripts");
+    private static final Pattern MODULE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)*");
 
-    public PythonInterpreter() {
+    public PythonInterpreter(PyFabricConfig config) {
+        this.config = config;
+        this.scriptCache = new ScriptCache(config.getScriptCacheMaxBytes());
+        this.scriptCatalogue = new ScriptCatalogue(SCRIPT_DIR, scriptCache, config.getScriptRescanIntervalMillis());
     }
 
-    public void init() {
-        try {
-            scriptExecutorService = Executors.newSingleThreadExecutor(createThreadFactory());
+    public ScriptCache getScriptCache() {
+        return scriptCache;
+    }
 
-            LOGGER.info("Creating GraalVM Python context...");
+    public ScriptCatalogue getScriptCatalogue() {
+        return scriptCatalogue;
+    }
 
-            Context.Builder builder = Context.newBuilder("python")
-                    .allowExperimentalOptions(true)
-                    .option("python.ForceImportSite", "true")
-                    .option("engine.WarnInterpreterOnly", "false")
-                    .option("python.EmulateJython", "true")
-                    .allowAllAccess(true);
+    // Null while the engine is not running.
+    public ParallelWorkers getParallelWorkers() {
+        return parallelWorkers;
+    }
 
-            polyglotContext = builder.build();
-            LOGGER.info("GraalVM Python context created successfully.");
-//            try {
-//                polyglotContext.eval("python", "import sys, os; print(f'Python {sys.version} initialized within Java. CWD: {os.getcwd()}')");
-//            } catch (PolyglotException testEx) {
-//                LOGGER.warn("Post-initialization Python test failed: {}", testEx.getMessage());
-//            }
+    // Starts engine creation and warm-up on a background thread; returns the pending future if already started.
+    public synchronized CompletableFuture<Void> initAsync() {
+        if (readiness != null) {
+            return readiness;
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        readiness = future;
+        Thread initThread = new Thread(() -> {
+            try {
+                init();
+            } finally {
+                future.complete(null);
+            }
+        }, "PyFabric-Init");
+        initThread.setDaemon(true);
+        initThread.start();
+        return future;
+    }
 
+    private void init() {
+        long startTime = System.nanoTime();
+        try {
+            int poolSize = config.getContextPoolSize();
+            scriptExecutorService = Executors.newFixedThreadPool(poolSize, createThreadFactory());
             initializeScriptDir();
+            scriptCatalogue.start();
+
+            LOGGER.info("Creating GraalVM Python engine with a pool of {} context(s)...", poolSize);
+            List<String> preludeModules = getValidPreludeModules();
+            ContextPool pool = new ContextPool(poolSize, config.getScriptStatementLimit(), context -> importPreludeModules(context, preludeModules));
+            contextPool = pool;
+            parallelWorkers = new ParallelWorkers(pool.getEngine(), config.getParallelWorkers(), config.getScriptStatementLimit(),
+                    config.getScriptStopGraceMillis());
+            PooledContext pooled = pool.acquire();
+            boolean reusable = false;
+            try {
+                reusable = runWarmupScript(pooled);
+            } finally {
+                if (reusable) {
+                    pool.release(pooled);
+                } else {
+                    scriptCache.forgetContext(pooled);
+                    pool.discard(pooled);
+                }
+            }
+            LOGGER.info("GraalVM Python engine ready after {} ms.", (System.nanoTime() - startTime) / 1_000_000);
 
         } catch (Exception e) {
             LOGGER.error("FATAL: Failed to initialize bundled GraalVM Python context! Python scripting will be disabled.", e);
-            polyglotContext = null;
+            if (parallelWorkers != null) {
+                parallelWorkers.close();
+            }
+            parallelWorkers = null;
+            if (contextPool != null) {
+                contextPool.close();
+            }
+            contextPool = null;
+        }
+    }
+
+    private List<String> getValidPreludeModules() {
+        List<String> modules = new ArrayList<>();
+        for (String module : config.getPreludeModules()) {
+            if (MODULE_NAME.matcher(module).matches()) {
+                modules.add(module);
+            } else {
+                LOGGER.warn("Ignoring invalid prelude module name '{}'", module);
+            }
+        }
+        return modules;
+    }
+
+    private void importPreludeModules(Context context, List<String> modules) {
+        for (String module : modules) {
+            try {
+                context.eval("python", "import " + module);
+            } catch (PolyglotException e) {
+                LOGGER.warn("Failed to import prelude module '{}': {}", module, e.getMessage());
+            }
         }
     }
 
+    // Runs the configured warm-up script once so the shared engine has compiled the common paths before the first
+    // real script. It runs before the server is up, so the mc object is not bound. Returns false if the context had to
+    // be cancelled and must not be reused.
+    private boolean runWarmupScript(PooledContext pooled) {
+        String fileName = config.getWarmupScript();
+        if (fileName.isEmpty()) {
+            return true;
+        }
+        ScriptCatalogue.Entry entry = scriptCatalogue.lookup(fileName);
+        if (entry == null) {
+            LOGGER.warn("Warm-up script {} not found in {}, skipping warm-up.", fileName, SCRIPT_DIR);
+            return true;
+        }
+        long startTime = System.nanoTime();
+        long timeLimitMillis = config.getScriptTimeLimitMillis();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        CompletableFuture<Void> stop = new CompletableFuture<>();
+        Future<?> timeoutTask = timeLimitMillis <= 0 ? null : watchdogExecutor.schedule(() -> stopExecutor.execute(() -> {
+            try {
+                pooled.getContext().interrupt(Duration.ofMillis(config.getScriptStopGraceMillis()));
+            } catch (TimeoutException e) {
+                LOGGER.warn("Warm-up script {} did not react to interruption, cancelling its context.", fileName);
+                cancelled.set(true);
+                try {
+                    pooled.getContext().close(true);
+                } catch (Exception closeException) {
+                    LOGGER.error("Error cancelling context of warm-up script {}", fileName, closeException);
+                }
+            } catch (Exception e) {
+                LOGGER.debug("Interrupting warm-up script {} failed: {}", fileName, e.getMessage());
+            } finally {
+                stop.complete(null);
+            }
+        }), timeLimitMillis, TimeUnit.MILLISECONDS);
+        try {
+            CachedScript script = scriptCache.get(entry);
+            ScriptNamespace.run(pooled, script.parsedFor(pooled), fileName, null, () -> false);
+            LOGGER.info("Warm-up script {} finished in {} ms.", fileName, (System.nanoTime() - startTime) / 1_000_000);
+        } catch (IOException | PolyglotException e) {
+            LOGGER.warn("Warm-up script {} failed: {}", fileName, e.getMessage());
+            if (e instanceof PolyglotException polyglotException && (polyglotException.isCancelled() || polyglotException.isResourceExhausted())) {
+                cancelled.set(true);
+            }
+        } finally {
+            // A stop that already started has to finish before the context goes back to the pool.
+            if (timeoutTask != null && !timeoutTask.cancel(false)) {
+                stop.join();
+            }
+        }
+        return !cancelled.get();
+    }
+
     private void initializeScriptDir() {
         try {
             if (Files.notExists(SCRIPT_DIR)) {
@@ -70,39 +225,59 @@ public class PythonInterpreter {
         }
     }
 
-    public CompletableFuture<Void> executeScriptFile(String fileName, ServerCommandSource source, MinecraftServer server) {
-        if (polyglotContext == null) {
+    // The futures below complete with true if the script ran to the end, false if it raised or was stopped, and
+    // exceptionally if it could not be started at all.
+    public CompletableFuture<Boolean> executeScriptFile(String fileName, ServerCommandSource source, MinecraftServer server) {
+        return whenReady(source, () -> executeScriptFileNow(fileName, source, server, null));
+    }
+
+    // Runs a script file with the CPU sampler attached to its thread; the profile is written when the run ends.
+    public CompletableFuture<Boolean> profileScriptFile(String fileName, ServerCommandSource source, MinecraftServer server) {
+        ScriptProfiler profiler = new ScriptProfiler(fileName, config.getProfileSampleIntervalMillis());
+        return whenReady(source, () -> executeScriptFileNow(fileName, source, server, profiler));
+    }
+
+    public CompletableFuture<Boolean> executeScript(String scriptContent, ServerCommandSource source, MinecraftServer server, String scriptName) {
+        return whenReady(source, () -> executeScriptNow(scriptContent, source, server, scriptName));
+    }
+
+    // Holds commands issued during startup until the engine is ready instead of failing them.
+    private CompletableFuture<Boolean> whenReady(ServerCommandSource source, Supplier<CompletableFuture<Boolean>> action) {
+        CompletableFuture<Void> future = readiness;
+        if (future == null) {
+            source.sendError(Text.literal("Python execution context is not available. Check server logs."));
+            return CompletableFuture.failedFuture(new IllegalStateException("Python interpreter is closed"));
+        }
+        if (future.isDone()) {
+            return action.get();
+        }
+        source.sendFeedback(() -> Text.literal("Python is still starting up, the script will run once it is ready.").formatted(Formatting.GRAY), false);
+        return future.thenCompose(ignored -> action.get());
+    }
+
+    private CompletableFuture<Boolean> executeScriptFileNow(String fileName, ServerCommandSource source, MinecraftServer server, ScriptProfiler profiler) {
+        if (contextPool == null) {
             source.sendError(Text.literal("Python execution context is not available. Check server logs."));
             return CompletableFuture.failedFuture(new IllegalStateException("Python context not available"));
         }
 
-        Path scriptPath = SCRIPT_DIR.resolve(fileName).toAbsolutePath();
-        if (!scriptPath.startsWith(SCRIPT_DIR.toAbsolutePath())) {
+        Path scriptPath = scriptCatalogue.resolve(fileName);
+        if (scriptPath == null) {
             String errorMsg = "Script path is outside the allowed directory (sandbox violation attempt).";
             source.sendError(Text.literal(errorMsg));
             return CompletableFuture.failedFuture(new SecurityException(errorMsg));
         }
-        if (Files.notExists(scriptPath)) {
+        ScriptCatalogue.Entry entry = scriptCatalogue.lookup(fileName);
+        if (entry == null) {
             String errorMsg = "Script file not found: " + fileName;
             source.sendError(Text.literal(errorMsg));
             return CompletableFuture.failedFuture(new FileNotFoundException(errorMsg));
         }
-        if (!Files.isRegularFile(scriptPath)) {
-            String errorMsg = "Target is not a regular file: " + fileName;
-            source.sendError(Text.literal(errorMsg));
-            return CompletableFuture.failedFuture(new IllegalArgumentException(errorMsg));
-        }
-        if (!Files.isReadable(scriptPath)) {
-            String errorMsg = "Script file is not readable: " + fileName;
-            source.sendError(Text.literal(errorMsg));
-            return CompletableFuture.failedFuture(new IOException(errorMsg));
-        }
-
 
         try {
-            String scriptContent = Files.readString(scriptPath);
+            CachedScript script = scriptCache.get(entry);
             source.sendFeedback(() -> Text.literal("Executing script: " + fileName).formatted(Formatting.GRAY), false);
-            return executeScript(scriptContent, source, server, scriptPath.toString());
+            return submitScript(script, source, server, scriptPath.toString(), profiler);
         } catch (IOException e) {
             source.sendError(Text.literal("Failed to read script file " + fileName + ": " + e.getMessage()));
             LOGGER.error("Error reading script {}", scriptPath, e);
@@ -110,46 +285,234 @@ public class PythonInterpreter {
         }
     }
 
-    public CompletableFuture<Void> executeScript(String scriptContent, ServerCommandSource source, MinecraftServer server, String scriptName) {
-        if (polyglotContext == null) {
+    private CompletableFuture<Boolean> executeScriptNow(String scriptContent, ServerCommandSource source, MinecraftServer server, String scriptName) {
+        if (contextPool == null) {
             source.sendError(Text.literal("Python execution context is not available. Check server logs."));
             return CompletableFuture.failedFuture(new IllegalStateException("Python context not available"));
         }
-        return CompletableFuture.runAsync(() -> {
-            long startTime = System.nanoTime();
+        return submitScript(CachedScript.uncached(Source.newBuilder("python", scriptContent, scriptName).buildLiteral()), source, server, scriptName, null);
+    }
+
+    // The returned future completes after the run has finished and its output has been flushed to the source.
+    private CompletableFuture<Boolean> submitScript(CachedScript script, ServerCommandSource source, MinecraftServer server, String scriptName, ScriptProfiler profiler) {
+        ContextPool pool = contextPool;
+        ScriptJob job = new ScriptJob(nextJobId.getAndIncrement(), scriptName, source.getName());
+        jobs.put(job.getId(), job);
+        ScriptOutput output = new ScriptOutput(source, scriptName, config.getOutputBufferLines());
+        CompletableFuture<Boolean> run;
+        try {
+            run = CompletableFuture.supplyAsync(() -> {
+                long startTime = System.nanoTime();
+                long startCpuNanos = MetricsRegistry.currentThreadCpuNanos();
+                ScriptMetrics scriptMetrics = SnakesAndThreads.getMetrics().script(scriptName);
+                ScriptRunEvent runEvent = new ScriptRunEvent();
+                runEvent.begin();
+                boolean success = false;
+                PooledContext pooled = null;
+                Context polyglotContext = null;
+                MinecraftAPI mcApi = null;
+                ResidentRun resident = null;
+                try {
+                    if (job.isCancelRequested()) {
+                        output.sendError(Text.literal("Script execution cancelled before it started.").formatted(Formatting.RED));
+                        return false;
+                    }
+                    pooled = pool.acquire();
+                    pooled.getOutput().attach(output);
+                    polyglotContext = pooled.getContext();
+                    job.markRunning(pooled);
+                    resident = new ResidentRun(job.getId(), scriptName, source.getName(), pooled, pool, scriptCache, residents,
+                            config.getScriptStopGraceMillis());
+                    if (job.isCancelRequested()) {
+                        output.sendError(Text.literal("Script execution cancelled before it started.").formatted(Formatting.RED));
+                        return false;
+                    }
+                    polyglotContext.resetLimits();
+                    long timeLimitMillis = config.getScriptTimeLimitMillis();
+                    if (timeLimitMillis > 0) {
+                        job.setTimeoutTask(watchdogExecutor.schedule(
+                                () -> stopJob(job, "time limit of " + timeLimitMillis + " ms exceeded"), timeLimitMillis, TimeUnit.MILLISECONDS));
+                    }
+
+                    polyglotContext.enter();
+                    mcApi = new MinecraftAPI(server, source, scriptName, resident);
+
+                    LOGGER.info("Executing Python script '{}' (job #{}) for {} on context #{}", scriptName, job.getId(), source.getName(), pooled.getId());
+                    if (profiler != null && !profiler.start(pool.getEngine())) {
+                        output.sendError(Text.literal("CPU sampler is not available, running without profiling.").formatted(Formatting.RED));
+                    }
+                    boolean parseHit = script.isParsedFor(pooled);
+                    ResidentRun subscriptions = resident;
+                    Value result = ScriptNamespace.run(pooled, script.parsedFor(pooled), scriptName, mcApi,
+                            () -> script.isResident() || subscriptions.hasSubscriptions());
+                    if (script.getPath() != null) {
+                        scriptCache.recordParse(script, parseHit);
+                    }
+
+                    long durationMillis = (System.nanoTime() - startTime) / 1_000_000;
+                    LOGGER.info("Script '{}' executed successfully in {} ms.", scriptName, durationMillis);
+                    success = true;
+                    handleResult(result, output);
+                } catch (PolyglotException e) {
+                    long durationMillis = (System.nanoTime() - startTime) / 1_000_000;
+                    LOGGER.error("Error executing Python script '{}' for {} after {} ms: {}", scriptName, source.getName(), durationMillis, e.getMessage(), e);
+                    if (e.isCancelled() || e.isResourceExhausted()) {
+                        job.markContextDiscarded();
+                    }
+                    handlePolyglotError(e, output, job);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    LOGGER.warn("Interrupted while waiting for a Python context for script '{}'", scriptName);
+                    output.sendError(Text.literal("Script execution cancelled.").formatted(Formatting.RED));
+                } catch (Exception e) {
+                    long durationMillis = (System.nanoTime() - startTime) / 1_000_000;
+                    LOGGER.error("Unexpected error during Python script execution '{}' after {} ms: {}", scriptName, durationMillis, e.getMessage(), e);
+                    output.sendError(Text.literal("Internal error during script execution: " + e.getClass().getSimpleName()).formatted(Formatting.RED));
+                } finally {
+                    // A stop leaves the interrupt flag set; clear it before anything below waits.
+                    Thread.interrupted();
+                    if (profiler != null) {
+                        reportProfile(profiler, output);
+                    }
+                    job.cancelTimeoutTask();
+                    jobs.remove(job.getId());
+                    long cpuNanos = MetricsRegistry.currentThreadCpuNanos() - startCpuNanos;
+                    scriptMetrics.recordRun(success, System.nanoTime() - startTime, cpuNanos);
+                    if (runEvent.shouldCommit()) {
+                        runEvent.scriptName = scriptName;
+                        runEvent.jobId = job.getId();
+                        runEvent.success = success;
+                        runEvent.cpuTime = cpuNanos;
+                        runEvent.serverThreadTime = mcApi != null ? mcApi.getServerThreadNanos() : 0L;
+                        runEvent.commit();
+                    }
+                    if (polyglotContext != null) {
+                        try {
+                            polyglotContext.leave();
+                        } catch (IllegalStateException e) {
+                            LOGGER.debug("Could not leave context of job #{}: {}", job.getId(), e.getMessage());
+                        }
+                    }
+                    if (pooled != null) {
+                        pooled.getOutput().detach();
+                        job.awaitStopAndRelease();
+                        // A stopped run loses its subscriptions; otherwise they keep the context out of the pool.
+                        ResidentRun.End end = resident != null
+                                ? resident.finish(!job.isContextDiscarded() && !job.isCancelRequested())
+                                : job.isContextDiscarded() ? ResidentRun.End.DISCARD : ResidentRun.End.RELEASE;
+                        if (end == ResidentRun.End.DISCARD) {
+                            scriptCache.forgetContext(pooled);
+                            pool.discard(pooled);
+                        } else if (end == ResidentRun.End.RELEASE) {
+                            pool.release(pooled);
+                        }
+                    }
+                    output.close();
+                }
+                return success;
+            }, scriptExecutorService);
+        } catch (RejectedExecutionException e) {
+            // The interpreter is shutting down. The output was never tracked, so nothing would ever drain it.
+            jobs.remove(job.getId());
+            output.discard();
+            source.sendError(Text.literal("Python is shutting down, the script was not run."));
+            return CompletableFuture.failedFuture(e);
+        }
+        // Tracked only once the run is queued; output written before this is flushed on the next tick as usual.
+        SnakesAndThreads.getScriptOutputPump().track(output);
+        return run.exceptionally(e -> {
+            jobs.remove(job.getId());
+            LOGGER.error("Failed to execute script task '{}': {}", scriptName, e.getMessage(), e);
+            output.sendError(Text.literal("Failed to run script task: " + e.getMessage()));
+            output.close();
+            return false;
+        }).thenCompose(success -> output.whenDrained().thenApply(ignored -> success));
+    }
+
+    private void reportProfile(ScriptProfiler profiler, ScriptOutput output) {
+        Path file = profiler.finish();
+        if (file == null) {
+            output.sendFeedback(() -> Text.literal("Profiler collected no samples.").formatted(Formatting.YELLOW));
+            return;
+        }
+        long samples = profiler.getSamples();
+        output.sendFeedback(() -> Text.literal(String.format("Profile written to %s (%d samples: %.1f%% host calls, %.1f%% waiting on the server thread)",
+                file, samples, 100.0 * profiler.getHostSamples() / samples, 100.0 * profiler.getServerWaitSamples() / samples)).formatted(Formatting.GRAY));
+        for (Map.Entry<String, Long> frame : profiler.getTopFrames(5)) {
+            output.sendFeedback(() -> Text.literal(String.format("  %5.1f%%  %s", 100.0 * frame.getValue() / samples, frame.getKey())).formatted(Formatting.GRAY));
+        }
+    }
+
+    public Collection<ScriptJob> getJobs() {
+        return jobs.values();
+    }
+
+    public int getJobCount(ScriptJob.State state) {
+        int count = 0;
+        for (ScriptJob job : jobs.values()) {
+            if (job.getState() == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public Collection<ResidentRun> getResidentRuns() {
+        return residents.values();
+    }
+
+    public boolean stopJob(int jobId, String reason) {
+        ScriptJob job = jobs.get(jobId);
+        if (job == null) {
+            ResidentRun resident = residents.get(jobId);
+            if (resident == null) {
+                return false;
+            }
+            LOGGER.warn("Stopping resident script job #{} ('{}'): {}", jobId, resident.getScriptName(), reason);
             try {
-                polyglotContext.enter();
-                MinecraftAPI mcApi = new MinecraftAPI(server, source);
-                Value bindings = polyglotContext.getBindings("python");
-                bindings.putMember("mc", mcApi);
-                bindings.putMember("__script_name__", scriptName);
-
-                LOGGER.info("Executing Python script '{}' for {}", scriptName, source.getName());
-                Source polyglotSource = Source.newBuilder("python", scriptContent, scriptName).build();
-                Value result = polyglotContext.eval(polyglotSource);
-
-                long durationMillis = (System.nanoTime() - startTime) / 1_000_000;
-                LOGGER.info("Script '{}' executed successfully in {} ms.", scriptName, durationMillis);
-                handleResult(result, source);
-            } catch (PolyglotException e) {
-                long durationMillis = (System.nanoTime() - startTime) / 1_000_000;
-                LOGGER.error("Error executing Python script '{}' for {} after {} ms: {}", scriptName, source.getName(), durationMillis, e.getMessage(), e);
-                handlePolyglotError(e, source);
-            } catch (Exception e) {
-                long durationMillis = (System.nanoTime() - startTime) / 1_000_000;
-                LOGGER.error("Unexpected error during Python script execution '{}' after {} ms: {}", scriptName, durationMillis, e.getMessage(), e);
-                source.sendError(Text.literal("Internal error during script execution: " + e.getClass().getSimpleName()).formatted(Formatting.RED));
-            } finally {
-                polyglotContext.leave();
+                stopExecutor.execute(resident::stop);
+            } catch (RejectedExecutionException e) {
+                resident.stop();
             }
-        }, scriptExecutorService).exceptionally(e -> {
-            LOGGER.error("Failed to execute script task '{}': {}", scriptName, e.getMessage(), e);
-            source.sendError(Text.literal("Failed to run script task: " + e.getMessage()));
-            return null;
-        });
+            return true;
+        }
+        stopJob(job, reason);
+        return true;
     }
 
-    private void handleResult(Value result, ServerCommandSource source) {
+    // Interrupts the job's context so the context stays reusable; falls back to cancelling (closing) it after the grace
+    // period. The job cannot release its context while this runs, so neither can land on the context's next script.
+    private void stopJob(ScriptJob job, String reason) {
+        PooledContext pooled = job.beginStop(reason);
+        if (pooled == null) {
+            LOGGER.info("Script job #{} ('{}') cancelled (not started, finishing or already stopping): {}", job.getId(), job.getScriptName(), reason);
+            return;
+        }
+        LOGGER.warn("Stopping script job #{} ('{}'): {}", job.getId(), job.getScriptName(), reason);
+        try {
+            stopExecutor.execute(() -> {
+                try {
+                    pooled.getContext().interrupt(Duration.ofMillis(config.getScriptStopGraceMillis()));
+                } catch (TimeoutException e) {
+                    LOGGER.warn("Script job #{} did not react to interruption, cancelling its context.", job.getId());
+                    job.markContextDiscarded();
+                    try {
+                        pooled.getContext().close(true);
+                    } catch (Exception closeException) {
+                        LOGGER.error("Error cancelling context of script job #{}", job.getId(), closeException);
+                    }
+                } catch (Exception e) {
+                    LOGGER.debug("Interrupting script job #{} failed: {}", job.getId(), e.getMessage());
+                } finally {
+                    job.endStop();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            job.endStop();
+        }
+    }
+
+    private void handleResult(Value result, ScriptOutput output) {
         if (result != null && !result.isNull()) {
             String resultPrefix = "Script result: ";
             Formatting format = Formatting.GREEN;
@@ -175,22 +538,30 @@ public class PythonInterpreter {
                 final String finalPrefix = resultPrefix;
                 final String finalResultStr = resultStr;
                 final Formatting finalFormat = format;
-                source.sendFeedback(() -> Text.literal(finalPrefix + " ").formatted(finalFormat).append(Text.literal(finalResultStr).formatted(finalFormat)), false);
+                output.sendFeedback(() -> Text.literal(finalPrefix + " ").formatted(finalFormat).append(Text.literal(finalResultStr).formatted(finalFormat)));
 
             } catch (PolyglotException e) {
                 LOGGER.warn("Error converting script result to string: {}", e.getMessage());
-                source.sendFeedback(() -> Text.literal("Script finished (result inspection failed).").formatted(Formatting.YELLOW), false);
+                output.sendFeedback(() -> Text.literal("Script finished (result inspection failed).").formatted(Formatting.YELLOW));
             }
         } else {
-            source.sendFeedback(() -> Text.literal("Script finished.").formatted(Formatting.GRAY), false);
+            output.sendFeedback(() -> Text.literal("Script finished.").formatted(Formatting.GRAY));
         }
     }
 
-    private void handlePolyglotError(PolyglotException e, ServerCommandSource source) {
+    private void handlePolyglotError(PolyglotException e, ScriptOutput output, ScriptJob job) {
         String simpleMessage;
         String detailedMessage = e.getMessage();
 
-        if (e.isHostException()) {
+        if (e.isResourceExhausted()) {
+            simpleMessage = "Script exceeded its resource limits and was stopped.";
+            LOGGER.warn("Script execution exhausted its resource limits: {}", e.getMessage());
+        } else if (e.isCancelled() || e.isInterrupted()) {
+            simpleMessage = job.getCancelReason() != null
+                    ? "Script execution stopped: " + job.getCancelReason()
+                    : "Script execution cancelled.";
+            LOGGER.warn("Script execution was cancelled: {}", e.getMessage());
+        } else if (e.isHostException()) {
             Throwable hostEx = e.asHostException();
             simpleMessage = "Java Error: " + hostEx.getClass().getSimpleName();
             detailedMessage = "HostException executing script: " + hostEx;
@@ -199,9 +570,6 @@ public class PythonInterpreter {
             simpleMessage = "Python Error: " + getPythonExceptionType(e);
         } else if (e.isSyntaxError()) {
             simpleMessage = "Python Syntax Error";
-        } else if (e.isCancelled()) {
-            simpleMessage = "Script execution cancelled.";
-            LOGGER.warn("Script execution was cancelled: {}", e.getMessage());
         } else if (e.isInternalError()) {
             simpleMessage = "Internal Polyglot Error.";
             LOGGER.error("Internal Polyglot Error: {}", e.getMessage(), e);
@@ -221,7 +589,7 @@ public class PythonInterpreter {
             simpleMessage = simpleMessage.substring(0, 147) + "...";
         }
 
-        source.sendError(Text.literal(simpleMessage).formatted(Formatting.RED));
+        output.sendError(Text.literal(simpleMessage).formatted(Formatting.RED));
         LOGGER.error("Detailed PolyglotException Info: {}", detailedMessage, e);
     }
 
@@ -241,17 +609,36 @@ public class PythonInterpreter {
     }
 
 
-    public void close() {
+    public synchronized void close() {
+        CompletableFuture<Void> pending = readiness;
+        if (pending == null) {
+            return;
+        }
+        // Let a running background init finish so it does not leave a half-built pool behind.
+        pending.join();
+        readiness = null;
+        scriptCatalogue.close();
         LOGGER.info("Shutting down Python executor service...");
+        if (scriptExecutorService == null) {
+            return;
+        }
         scriptExecutorService.shutdown();
-        if (polyglotContext != null) {
+        for (ResidentRun resident : List.copyOf(residents.values())) {
+            resident.stop();
+        }
+        if (parallelWorkers != null) {
+            parallelWorkers.close();
+            parallelWorkers = null;
+        }
+        if (contextPool != null) {
             try {
-                polyglotContext.close(true);
-                LOGGER.info("GraalVM Python context closed.");
+                contextPool.close();
+                scriptCache.forgetAllContexts();
+                LOGGER.info("GraalVM Python contexts closed.");
             } catch (Exception e) {
-                LOGGER.error("Error closing GraalVM context", e);
+                LOGGER.error("Error closing GraalVM context pool", e);
             } finally {
-                polyglotContext = null;
+                contextPool = null;
             }
         }
         try {
@@ -0,0 +1,232 @@
+package minhcrafters.pyfabric.python;
+
+import minhcrafters.pyfabric.SnakesAndThreads;
+import minhcrafters.pyfabric.event.ScriptEventBus;
+import org.graalvm.polyglot.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// The event subscriptions of one script run. Callbacks are delivered one batch at a time on a dedicated delivery
+// thread (PyFabric-Events-<job id>) that enters the same context the run executes in, so they never share a pooled
+// context (statement limit, /pystop, output) with another script. Nothing keeps that thread out while the run's own
+// thread is still executing: GraalPy lets several threads enter a context and runs their Python code one at a time
+// under its global interpreter lock, so a callback interleaves with the run like a Python thread would. If the run
+// returns with subscriptions left, its context is taken out of the pool and stays reserved for the callbacks until
+// the last subscription is removed or the run is stopped.
+public class ResidentRun implements Executor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResidentRun.class);
+
+    public enum State {
+        RUNNING,
+        RESIDENT,
+        CLOSED
+    }
+
+    // What the worker does with the context once the run has returned.
+    enum End {
+        RELEASE,
+        DISCARD,
+        RESIDENT
+    }
+
+    private final int jobId;
+    private final String scriptName;
+    private final String owner;
+    private final PooledContext pooled;
+    private final ContextPool pool;
+    private final ScriptCache scriptCache;
+    private final Map<Integer, ResidentRun> registry;
+    private final long graceMillis;
+    private final Set<Integer> subscriptions = ConcurrentHashMap.newKeySet();
+    private final long startedAtMillis = System.currentTimeMillis();
+    // Guarded by this.
+    private State state = State.RUNNING;
+    private ExecutorService delivery;
+
+    ResidentRun(int jobId, String scriptName, String owner, PooledContext pooled, ContextPool pool, ScriptCache scriptCache,
+                Map<Integer, ResidentRun> registry, long graceMillis) {
+        this.jobId = jobId;
+        this.scriptName = scriptName;
+        this.owner = owner;
+        this.pooled = pooled;
+        this.pool = pool;
+        this.scriptCache = scriptCache;
+        this.registry = registry;
+        this.graceMillis = graceMillis;
+    }
+
+    public int getJobId() {
+        return jobId;
+    }
+
+    public String getScriptName() {
+        return scriptName;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public long getStartedAtMillis() {
+        return startedAtMillis;
+    }
+
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public boolean hasSubscriptions() {
+        return !subscriptions.isEmpty();
+    }
+
+    public int subscribe(String type, Value callback) {
+        ScriptEventBus bus = SnakesAndThreads.getScriptEventBus();
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                throw new IllegalStateException("Script run #" + jobId + " has ended and cannot subscribe to events");
+            }
+            if (delivery == null) {
+                delivery = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "PyFabric-Events-" + jobId);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            int id = bus.subscribe(type, callback, scriptName, this, this::removed);
+            subscriptions.add(id);
+            return id;
+        }
+    }
+
+    // Runs an event delivery on this run's delivery thread.
+    @Override
+    public void execute(Runnable command) {
+        ExecutorService executor;
+        synchronized (this) {
+            executor = delivery;
+        }
+        executor.execute(() -> {
+            if (getState() == State.RESIDENT) {
+                // The run is over; each batch gets the full statement limit instead of what the run left over.
+                pooled.getContext().resetLimits();
+            }
+            command.run();
+        });
+    }
+
+    private void removed(int subscriptionId) {
+        boolean close;
+        synchronized (this) {
+            subscriptions.remove(subscriptionId);
+            close = state == State.RESIDENT && subscriptions.isEmpty();
+            if (close) {
+                state = State.CLOSED;
+            }
+        }
+        if (close) {
+            LOGGER.info("Last event subscription of script '{}' (job #{}) removed, releasing its context.", scriptName, jobId);
+            closeResident(false);
+        }
+    }
+
+    // Called by the worker once the run has returned and no stop is in progress. A run that was stopped or whose context
+    // is broken loses its subscriptions.
+    End finish(boolean contextUsable) {
+        ExecutorService executor;
+        synchronized (this) {
+            if (contextUsable && !subscriptions.isEmpty()) {
+                state = State.RESIDENT;
+                pool.detach(pooled);
+                registry.put(jobId, this);
+                LOGGER.info("Script '{}' (job #{}) stays resident for {} event subscription(s) on context #{}",
+                        scriptName, jobId, subscriptions.size(), pooled.getId());
+                return End.RESIDENT;
+            }
+            state = State.CLOSED;
+            executor = delivery;
+        }
+        unsubscribeAll();
+        if (executor == null) {
+            return contextUsable ? End.RELEASE : End.DISCARD;
+        }
+        // Deliveries still running use the context, which must not go back to the pool under them.
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(graceMillis, TimeUnit.MILLISECONDS)) {
+                return contextUsable ? End.RELEASE : End.DISCARD;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.warn("Event callbacks of script '{}' (job #{}) did not finish, discarding its context.", scriptName, jobId);
+        executor.shutdownNow();
+        return End.DISCARD;
+    }
+
+    // Ends a resident run: removes its subscriptions and cancels whatever callback is still running. Blocks while the
+    // context closes, so callers on the server thread should hand this off.
+    public void stop() {
+        synchronized (this) {
+            if (state != State.RESIDENT) {
+                return;
+            }
+            state = State.CLOSED;
+        }
+        LOGGER.info("Stopping resident script '{}' (job #{})", scriptName, jobId);
+        closeResident(true);
+    }
+
+    private void closeResident(boolean cancelRunning) {
+        unsubscribeAll();
+        registry.remove(jobId, this);
+        ExecutorService executor;
+        synchronized (this) {
+            executor = delivery;
+        }
+        Runnable close = () -> {
+            scriptCache.forgetContext(pooled);
+            try {
+                pooled.getContext().close(true);
+            } catch (Exception e) {
+                LOGGER.error("Error closing context of resident script job #{}", jobId, e);
+            }
+        };
+        if (cancelRunning || executor == null) {
+            close.run();
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            return;
+        }
+        // Closed on the delivery thread after the batches already queued, so the caller (possibly the server thread,
+        // or that very thread inside a callback calling mc.off) never waits for a callback.
+        try {
+            executor.execute(close);
+        } catch (RejectedExecutionException e) {
+            close.run();
+        }
+        executor.shutdown();
+    }
+
+    private void unsubscribeAll() {
+        ScriptEventBus bus = SnakesAndThreads.getScriptEventBus();
+        for (Integer id : List.copyOf(subscriptions)) {
+            bus.unsubscribe(id);
+        }
+        subscriptions.clear();
+    }
+}
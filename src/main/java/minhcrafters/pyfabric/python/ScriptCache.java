@@ -0,0 +1,154 @@
+package minhcrafters.pyfabric.python;
+
+import org.graalvm.polyglot.Source;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ScriptCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptCache.class);
+
+    private final long maxBytes;
+    // Sizes are summed when needed rather than tracked: an entry grows as contexts compile it.
+    private final LinkedHashMap<Path, CachedScript> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong sourceHits = new AtomicLong();
+    private final AtomicLong sourceMisses = new AtomicLong();
+    private final AtomicLong parseHits = new AtomicLong();
+    private final AtomicLong parseMisses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ScriptCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public CachedScript get(Path scriptPath) throws IOException {
+        Path canonicalPath = scriptPath.toRealPath();
+        BasicFileAttributes attributes = Files.readAttributes(canonicalPath, BasicFileAttributes.class);
+        return get(canonicalPath, attributes.lastModifiedTime().toMillis(), attributes.size());
+    }
+
+    // The catalogue already resolved the path, but its metadata can lag behind a save the watcher has not seen (or
+    // missed), so the file's attributes are still read; that is one stat, not a directory listing.
+    public CachedScript get(ScriptCatalogue.Entry entry) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(entry.path(), BasicFileAttributes.class);
+        return get(entry.path(), attributes.lastModifiedTime().toMillis(), attributes.size());
+    }
+
+    private CachedScript get(Path canonicalPath, long lastModified, long size) throws IOException {
+        synchronized (this) {
+            CachedScript cached = entries.get(canonicalPath);
+            if (cached != null && cached.matches(lastModified, size)) {
+                sourceHits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        sourceMisses.incrementAndGet();
+        String content = Files.readString(canonicalPath);
+        Source source = Source.newBuilder("python", content, canonicalPath.toString()).build();
+        CachedScript script = new CachedScript(canonicalPath, lastModified, size, source);
+        put(script);
+        return script;
+    }
+
+    private synchronized void put(CachedScript script) {
+        entries.put(script.getPath(), script);
+        trim(script);
+    }
+
+    // Evicts least recently used entries other than keep until the estimate fits.
+    private void trim(CachedScript keep) {
+        long totalBytes = estimateTotalBytes();
+        Iterator<Map.Entry<Path, CachedScript>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            CachedScript eldest = iterator.next().getValue();
+            if (eldest == keep) {
+                continue;
+            }
+            iterator.remove();
+            totalBytes -= eldest.getEstimatedBytes();
+            evictions.incrementAndGet();
+            LOGGER.debug("Evicted cached script {}", eldest.getPath());
+        }
+    }
+
+    private long estimateTotalBytes() {
+        long totalBytes = 0L;
+        for (CachedScript script : entries.values()) {
+            totalBytes += script.getEstimatedBytes();
+        }
+        return totalBytes;
+    }
+
+    public synchronized void invalidate(Path scriptPath) {
+        entries.remove(scriptPath);
+    }
+
+    synchronized void forgetContext(PooledContext pooled) {
+        for (CachedScript script : entries.values()) {
+            script.forgetContext(pooled);
+        }
+    }
+
+    // Called when the context pool closes: compiled copies hold on to their contexts.
+    synchronized void forgetAllContexts() {
+        for (CachedScript script : entries.values()) {
+            script.forgetAllContexts();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    // A miss compiled the script in one more context, which makes the entry bigger.
+    void recordParse(CachedScript script, boolean hit) {
+        (hit ? parseHits : parseMisses).incrementAndGet();
+        if (!hit) {
+            synchronized (this) {
+                trim(script);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return estimateTotalBytes();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getSourceHits() {
+        return sourceHits.get();
+    }
+
+    public long getSourceMisses() {
+        return sourceMisses.get();
+    }
+
+    public long getParseHits() {
+        return parseHits.get();
+    }
+
+    public long getParseMisses() {
+        return parseMisses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+}
@@ -0,0 +1,273 @@
+package minhcrafters.pyfabric.python;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+// In-memory index of the scripts directory (including subdirectories), kept current by a WatchService so that
+// tab completion and /pyexec path checks do not touch the filesystem.
+public class ScriptCatalogue {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptCatalogue.class);
+
+    public record Entry(String name, Path path, long lastModified, long size) {
+    }
+
+    private final Path root;
+    private final ScriptCache scriptCache;
+    private final long rescanIntervalMillis;
+    private final Map<String, Entry> entries = new ConcurrentSkipListMap<>();
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+
+    private volatile WatchService watchService;
+    private volatile Thread watchThread;
+
+    public ScriptCatalogue(Path root, ScriptCache scriptCache, long rescanIntervalMillis) {
+        this.root = root.toAbsolutePath().normalize();
+        this.scriptCache = scriptCache;
+        this.rescanIntervalMillis = rescanIntervalMillis;
+    }
+
+    public synchronized void start() {
+        if (watchThread != null) {
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.warn("File watching is not available for {}, relying on periodic rescans: {}", root, e.getMessage());
+            watchService = null;
+        }
+        rescan();
+        Thread thread = new Thread(this::watchLoop, "PyFabric-ScriptWatcher");
+        thread.setDaemon(true);
+        watchThread = thread;
+        thread.start();
+        LOGGER.info("Indexed {} script(s) in {}", entries.size(), root);
+    }
+
+    public synchronized void close() {
+        Thread thread = watchThread;
+        watchThread = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        WatchService service = watchService;
+        watchService = null;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                LOGGER.debug("Error closing script watch service: {}", e.getMessage());
+            }
+        }
+        watchedDirs.clear();
+        entries.clear();
+    }
+
+    // Resolves a script name relative to the scripts directory. Returns null if the name escapes the directory.
+    public Path resolve(String name) {
+        Path path = root.resolve(name).normalize();
+        return path.startsWith(root) && !path.equals(root) ? path : null;
+    }
+
+    // Looks up an indexed script. A miss re-checks the file once, in case its watch event has not arrived yet.
+    public Entry lookup(String name) {
+        Path path = resolve(name);
+        if (path == null) {
+            return null;
+        }
+        Entry entry = entries.get(nameOf(path));
+        return entry != null ? entry : index(path);
+    }
+
+    public List<String> suggest(String prefix) {
+        String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+        List<String> names = new ArrayList<>();
+        for (String name : entries.keySet()) {
+            String lowerName = name.toLowerCase(Locale.ROOT);
+            if (lowerName.endsWith(".py") && lowerName.startsWith(lowerPrefix)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void watchLoop() {
+        while (watchThread == Thread.currentThread()) {
+            try {
+                WatchService service = watchService;
+                WatchKey key;
+                if (service == null) {
+                    Thread.sleep(rescanIntervalMillis > 0 ? rescanIntervalMillis : Long.MAX_VALUE);
+                    key = null;
+                } else if (rescanIntervalMillis > 0) {
+                    key = service.poll(rescanIntervalMillis, TimeUnit.MILLISECONDS);
+                } else {
+                    key = service.take();
+                }
+                if (key == null) {
+                    // Periodic rescan catches changes the watch service misses, e.g. on network mounts.
+                    rescan();
+                    continue;
+                }
+                Path dir = watchedDirs.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                        rescan();
+                        continue;
+                    }
+                    handleEvent(event.kind(), dir.resolve((Path) event.context()));
+                }
+                if (!key.reset()) {
+                    watchedDirs.remove(key);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (Exception e) {
+                LOGGER.error("Error while watching script directory {}", root, e);
+            }
+        }
+    }
+
+    private void handleEvent(WatchEvent.Kind<?> kind, Path path) {
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            removeTree(path);
+        } else if (Files.isDirectory(path)) {
+            if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+                indexTree(path);
+            }
+        } else {
+            index(path);
+        }
+    }
+
+    private synchronized void rescan() {
+        Set<String> seen = new HashSet<>();
+        if (Files.isDirectory(root)) {
+            indexTree(root, seen);
+        }
+        for (Entry entry : entries.values()) {
+            if (!seen.contains(entry.name())) {
+                remove(entry);
+            }
+        }
+    }
+
+    private void indexTree(Path dir) {
+        indexTree(dir, new HashSet<>());
+    }
+
+    private void indexTree(Path dir, Set<String> seen) {
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path subDir, BasicFileAttributes attributes) {
+                    watch(subDir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    Entry entry = index(file, attributes);
+                    if (entry != null) {
+                        seen.add(entry.name());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    LOGGER.debug("Cannot index script {}: {}", file, e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.error("Failed to index script directory {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private void watch(Path dir) {
+        WatchService service = watchService;
+        if (service == null || watchedDirs.containsValue(dir)) {
+            return;
+        }
+        try {
+            WatchKey key = dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirs.put(key, dir);
+        } catch (IOException | ClosedWatchServiceException e) {
+            LOGGER.debug("Cannot watch script directory {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private Entry index(Path path) {
+        try {
+            return index(path, Files.readAttributes(path, BasicFileAttributes.class));
+        } catch (IOException e) {
+            removeTree(path);
+            return null;
+        }
+    }
+
+    private Entry index(Path path, BasicFileAttributes attributes) {
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        Path canonicalPath;
+        try {
+            canonicalPath = path.toRealPath();
+        } catch (IOException e) {
+            return null;
+        }
+        Entry entry = new Entry(nameOf(path), canonicalPath, attributes.lastModifiedTime().toMillis(), attributes.size());
+        Entry previous = entries.put(entry.name(), entry);
+        if (previous != null && (previous.lastModified() != entry.lastModified() || previous.size() != entry.size())) {
+            scriptCache.invalidate(previous.path());
+        }
+        return entry;
+    }
+
+    private void removeTree(Path path) {
+        String name = nameOf(path);
+        String dirPrefix = name + "/";
+        for (Entry entry : entries.values()) {
+            if (entry.name().equals(name) || entry.name().startsWith(dirPrefix)) {
+                remove(entry);
+            }
+        }
+    }
+
+    private void remove(Entry entry) {
+        if (entries.remove(entry.name(), entry)) {
+            scriptCache.invalidate(entry.path());
+        }
+    }
+
+    private String nameOf(Path path) {
+        return root.relativize(path.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+}
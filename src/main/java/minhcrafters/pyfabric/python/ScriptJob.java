@@ -0,0 +1,124 @@
+package minhcrafters.pyfabric.python;
+
+import java.util.concurrent.Future;
+
+public class ScriptJob {
+    public enum State {
+        QUEUED,
+        RUNNING,
+        STOPPING
+    }
+
+    private final int id;
+    private final String scriptName;
+    private final String owner;
+    private final long submittedAtMillis = System.currentTimeMillis();
+
+    private volatile State state = State.QUEUED;
+    private volatile long startedAtNanos = 0L;
+    private volatile PooledContext context;
+    private volatile String cancelReason;
+    private volatile boolean contextDiscarded = false;
+    private volatile Future<?> timeoutTask;
+    // Guarded by this: a stop is interrupting the context, and the worker has handed the context back.
+    private boolean stopping = false;
+    private boolean released = false;
+
+    ScriptJob(int id, String scriptName, String owner) {
+        this.id = id;
+        this.scriptName = scriptName;
+        this.owner = owner;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getScriptName() {
+        return scriptName;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getSubmittedAtMillis() {
+        return submittedAtMillis;
+    }
+
+    public long getRunningMillis() {
+        long started = startedAtNanos;
+        return started == 0L ? 0L : (System.nanoTime() - started) / 1_000_000;
+    }
+
+    public String getCancelReason() {
+        return cancelReason;
+    }
+
+    synchronized void markRunning(PooledContext pooled) {
+        this.context = pooled;
+        this.startedAtNanos = System.nanoTime();
+        if (state == State.QUEUED) {
+            state = State.RUNNING;
+        }
+    }
+
+    // Returns the context to interrupt, or null if there is nothing to interrupt: the job has not started yet (it
+    // will then be skipped), has already given its context back, or is being stopped already. The job keeps the
+    // returned context until endStop() is called.
+    synchronized PooledContext beginStop(String reason) {
+        if (cancelReason == null) {
+            cancelReason = reason;
+        }
+        state = State.STOPPING;
+        if (context == null || released || stopping) {
+            return null;
+        }
+        stopping = true;
+        return context;
+    }
+
+    synchronized void endStop() {
+        stopping = false;
+        notifyAll();
+    }
+
+    // Called by the worker before it releases or discards its context; waits for a stop still working on it.
+    synchronized void awaitStopAndRelease() {
+        while (stopping) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                // The context has to stay with this job until the stop is done; keep waiting.
+            }
+        }
+        released = true;
+    }
+
+    boolean isCancelRequested() {
+        return cancelReason != null;
+    }
+
+    void markContextDiscarded() {
+        contextDiscarded = true;
+    }
+
+    boolean isContextDiscarded() {
+        return contextDiscarded;
+    }
+
+    void setTimeoutTask(Future<?> timeoutTask) {
+        this.timeoutTask = timeoutTask;
+    }
+
+    void cancelTimeoutTask() {
+        Future<?> task = timeoutTask;
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+}
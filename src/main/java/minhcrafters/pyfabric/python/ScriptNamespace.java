@@ -0,0 +1,100 @@
+package minhcrafters.pyfabric.python;
+
+import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
+
+// Runs each script in a fresh module namespace inside a pooled context, so runs do not see each other's globals and
+// the objects of a finished run can be collected, without the cost of a new context. The namespace is cleared after
+// the run unless the run is resident: it left event subscriptions behind, or the script's header comment contains
+// "# pyfabric: resident" for other callbacks that outlive the run.
+final class ScriptNamespace {
+    private static final Pattern RESIDENT = Pattern.compile("#\\s*pyfabric:\\s*resident\\s*");
+
+    // Evaluated once per context. A trailing expression is compiled separately so its value is still the script's
+    // result, as it was when scripts ran as the context's main module.
+    private static final Source HELPER = Source.newBuilder("python", """
+            def __pyfabric_namespace():
+                import ast
+                import builtins
+                import types
+
+                def compile_script(text, filename):
+                    tree = ast.parse(text, filename)
+                    result = None
+                    if tree.body and isinstance(tree.body[-1], ast.Expr):
+                        result = compile(ast.Expression(tree.body.pop().value), filename, "eval")
+                    return compile(tree, filename, "exec"), result
+
+                def new_namespace(name, api):
+                    namespace = types.ModuleType("__main__").__dict__
+                    namespace["__builtins__"] = builtins
+                    namespace["__script_name__"] = name
+                    namespace["mc"] = api
+                    return namespace
+
+                def run_script(compiled, namespace):
+                    body, result = compiled
+                    exec(body, namespace)
+                    return None if result is None else eval(result, namespace)
+
+                return types.SimpleNamespace(compile=compile_script, namespace=new_namespace, run=run_script)
+
+            __pyfabric_namespace()
+            """, "<pyfabric-namespace>").buildLiteral();
+
+    private ScriptNamespace() {
+    }
+
+    // Only the leading comment block counts, so the marker cannot be switched on from a string further down.
+    static boolean declaresResident(CharSequence text) {
+        for (String line : text.toString().split("\n", 64)) {
+            String trimmed = line.strip();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!trimmed.startsWith("#")) {
+                return false;
+            }
+            if (RESIDENT.matcher(trimmed).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The context must be entered. Returns the compiled form to pass to run, reusable for any number of runs.
+    static Value compile(PooledContext pooled, Source source) {
+        return helper(pooled).invokeMember("compile", source.getCharacters().toString(), source.getName());
+    }
+
+    // The context must be entered. Returns the value of the script's trailing expression, or None. resident is asked
+    // once the script has returned, so subscriptions made during the run count.
+    static Value run(PooledContext pooled, Value compiled, String scriptName, Object api, BooleanSupplier resident) {
+        Value helper = helper(pooled);
+        Value namespace = helper.invokeMember("namespace", scriptName, api);
+        try {
+            return helper.invokeMember("run", compiled, namespace);
+        } finally {
+            if (!resident.getAsBoolean()) {
+                try {
+                    namespace.invokeMember("clear");
+                } catch (PolyglotException | IllegalStateException e) {
+                    // The run was cancelled with its context; the namespace went with it.
+                }
+            }
+        }
+    }
+
+    private static Value helper(PooledContext pooled) {
+        Value helper = pooled.getNamespaceHelper();
+        if (helper == null) {
+            helper = pooled.getContext().eval(HELPER);
+            pooled.setNamespaceHelper(helper);
+        }
+        return helper;
+    }
+}
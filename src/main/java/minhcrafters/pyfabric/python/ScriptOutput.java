@@ -0,0 +1,138 @@
+package minhcrafters.pyfabric.python;
+
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.MutableText;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Per-run buffer for printed output and status messages. Flushed on the server thread once per tick, a limited
+// number of lines at a time, as one message to the command source and one log entry per stream.
+public class ScriptOutput {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptOutput.class);
+
+    private record Entry(Text text, boolean error, String logLine) {
+    }
+
+    private final ServerCommandSource source;
+    private final String scriptName;
+    private final int capacity;
+    private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger printedLines = new AtomicInteger();
+    private final AtomicLong droppedLines = new AtomicLong();
+    private final CompletableFuture<Void> drained = new CompletableFuture<>();
+    private volatile boolean closed = false;
+
+    public ScriptOutput(ServerCommandSource source, String scriptName, int capacity) {
+        this.source = source;
+        this.scriptName = scriptName;
+        this.capacity = capacity;
+    }
+
+    void appendLine(String line, boolean error) {
+        if (printedLines.incrementAndGet() > capacity) {
+            printedLines.decrementAndGet();
+            droppedLines.incrementAndGet();
+            return;
+        }
+        entries.offer(new Entry(Text.literal(line).formatted(error ? Formatting.RED : Formatting.WHITE), error, line));
+    }
+
+    // Status messages are queued behind the printed output so they arrive in order; they are never dropped.
+    public void sendFeedback(Supplier<Text> text) {
+        entries.offer(new Entry(text.get(), false, null));
+    }
+
+    public void sendError(Text text) {
+        entries.offer(new Entry(text, true, null));
+    }
+
+    public void close() {
+        closed = true;
+    }
+
+    public boolean isDrained() {
+        return closed && entries.isEmpty();
+    }
+
+    // Completes once the run has finished and everything it produced has been delivered to the command source.
+    public CompletableFuture<Void> whenDrained() {
+        return drained;
+    }
+
+    // Drops undelivered output, e.g. when the server stops before it could be flushed.
+    public void discard() {
+        closed = true;
+        entries.clear();
+        drained.complete(null);
+    }
+
+    // Server thread only.
+    public void flush(int maxLines) {
+        MutableText batch = null;
+        StringBuilder outLog = null;
+        StringBuilder errLog = null;
+        for (int i = 0; i < maxLines; i++) {
+            Entry entry = entries.poll();
+            if (entry == null) {
+                break;
+            }
+            if (entry.logLine() != null) {
+                printedLines.decrementAndGet();
+                if (entry.error()) {
+                    errLog = appendLine(errLog, entry.logLine());
+                } else {
+                    outLog = appendLine(outLog, entry.logLine());
+                }
+            }
+            if (entry.error() && entry.logLine() == null) {
+                sendBatch(batch);
+                batch = null;
+                source.sendError(entry.text());
+                continue;
+            }
+            if (batch == null) {
+                batch = Text.empty().append(entry.text());
+            } else {
+                batch.append("\n").append(entry.text());
+            }
+        }
+        long dropped = droppedLines.getAndSet(0L);
+        if (dropped > 0) {
+            Text notice = Text.literal("... " + dropped + " line(s) of output dropped").formatted(Formatting.GRAY);
+            batch = batch == null ? Text.empty().append(notice) : batch.append("\n").append(notice);
+            LOGGER.warn("[{}] Dropped {} line(s) of output", scriptName, dropped);
+        }
+        sendBatch(batch);
+        if (outLog != null) {
+            LOGGER.info("[{}] {}", scriptName, outLog);
+        }
+        if (errLog != null) {
+            LOGGER.warn("[{}] {}", scriptName, errLog);
+        }
+        if (isDrained()) {
+            drained.complete(null);
+        }
+    }
+
+    private void sendBatch(MutableText batch) {
+        if (batch != null) {
+            source.sendFeedback(() -> batch, false);
+        }
+    }
+
+    private static StringBuilder appendLine(StringBuilder log, String line) {
+        if (log == null) {
+            return new StringBuilder(line);
+        }
+        return log.append('\n').append(line);
+    }
+}
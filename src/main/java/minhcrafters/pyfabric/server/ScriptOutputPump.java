@@ -0,0 +1,87 @@
+package minhcrafters.pyfabric.server;
+
+import minhcrafters.pyfabric.config.PyFabricConfig;
+import minhcrafters.pyfabric.python.ScriptOutput;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.text.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Flushes buffered script output and merged send_chat messages once per tick, within per-tick line limits.
+public class ScriptOutputPump {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptOutputPump.class);
+
+    private final int outputLinesPerTick;
+    private final int chatLinesPerTick;
+    private final int chatCapacity;
+    private final Set<ScriptOutput> outputs = ConcurrentHashMap.newKeySet();
+    private final Queue<String> chatMessages = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger chatSize = new AtomicInteger();
+    private final AtomicLong droppedChat = new AtomicLong();
+
+    public ScriptOutputPump(PyFabricConfig config) {
+        this.outputLinesPerTick = config.getOutputLinesPerTick();
+        this.chatLinesPerTick = config.getChatLinesPerTick();
+        this.chatCapacity = config.getOutputBufferLines();
+    }
+
+    public void register() {
+        ServerTickEvents.END_SERVER_TICK.register(this::flush);
+    }
+
+    public void track(ScriptOutput output) {
+        outputs.add(output);
+    }
+
+    public boolean queueChat(String message) {
+        if (chatSize.incrementAndGet() > chatCapacity) {
+            chatSize.decrementAndGet();
+            droppedChat.incrementAndGet();
+            return false;
+        }
+        chatMessages.offer(message);
+        return true;
+    }
+
+    public void clear() {
+        outputs.forEach(ScriptOutput::discard);
+        outputs.clear();
+        chatMessages.clear();
+        chatSize.set(0);
+    }
+
+    private void flush(MinecraftServer server) {
+        for (ScriptOutput output : outputs) {
+            output.flush(outputLinesPerTick);
+            if (output.isDrained()) {
+                outputs.remove(output);
+            }
+        }
+
+        // Consecutive messages go out as one multi-line broadcast instead of one packet each.
+        StringBuilder merged = null;
+        for (int i = 0; i < chatLinesPerTick; i++) {
+            String message = chatMessages.poll();
+            if (message == null) {
+                break;
+            }
+            chatSize.decrementAndGet();
+            merged = merged == null ? new StringBuilder(message) : merged.append('\n').append(message);
+        }
+        if (merged != null) {
+            server.getPlayerManager().broadcast(Text.literal(merged.toString()), false);
+        }
+        long dropped = droppedChat.getAndSet(0L);
+        if (dropped > 0) {
+            LOGGER.warn("Dropped {} script chat message(s): chat buffer full", dropped);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package minhcrafters.pyfabric.server;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import minhcrafters.pyfabric.config.PyFabricConfig;
+import minhcrafters.pyfabric.python.PythonInterpreter;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.server.MinecraftServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Runs scripts every N ticks. A trigger is skipped while the previous run of the same entry is still queued or
+// running, so slow scripts never pile up on the executor. Entries are persisted in schedules.json.
+public class ScriptScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptScheduler.class);
+    private static final Path SCHEDULES_FILE = PyFabricConfig.CONFIG_DIR.resolve("schedules.json");
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final Supplier<PythonInterpreter> interpreter;
+    // Only touched on the server thread (tick handler and commands).
+    private final Map<Integer, Entry> entries = new TreeMap<>();
+    private long currentTick = 0L;
+    private int nextId = 1;
+
+    public ScriptScheduler(Supplier<PythonInterpreter> interpreter) {
+        this.interpreter = interpreter;
+    }
+
+    public void register() {
+        ServerTickEvents.END_SERVER_TICK.register(this::onTickEnd);
+    }
+
+    public void load() {
+        if (Files.notExists(SCHEDULES_FILE)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(SCHEDULES_FILE)) {
+            List<StoredEntry> stored = GSON.fromJson(reader, new TypeToken<List<StoredEntry>>() {
+            }.getType());
+            if (stored == null) {
+                return;
+            }
+            for (StoredEntry storedEntry : stored) {
+                if (storedEntry.script == null || storedEntry.interval < 1) {
+                    LOGGER.warn("Ignoring invalid schedule entry #{} in {}", storedEntry.id, SCHEDULES_FILE);
+                    continue;
+                }
+                Entry entry = new Entry(storedEntry.id, storedEntry.script, storedEntry.interval, Math.max(0, storedEntry.jitter));
+                entry.nextRunTick = currentTick + entry.nextDelay();
+                entries.put(entry.id, entry);
+                nextId = Math.max(nextId, entry.id + 1);
+            }
+            LOGGER.info("Loaded {} scheduled script(s) from {}", entries.size(), SCHEDULES_FILE);
+        } catch (IOException | JsonParseException e) {
+            LOGGER.error("Failed to read script schedules from {}", SCHEDULES_FILE, e);
+        }
+    }
+
+    private void save() {
+        List<StoredEntry> stored = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            stored.add(new StoredEntry(entry.id, entry.script, entry.intervalTicks, entry.jitterTicks));
+        }
+        try {
+            Files.createDirectories(SCHEDULES_FILE.getParent());
+            try (Writer writer = Files.newBufferedWriter(SCHEDULES_FILE)) {
+                GSON.toJson(stored, writer);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to write script schedules to {}", SCHEDULES_FILE, e);
+        }
+    }
+
+    public Entry add(String script, int intervalTicks, int jitterTicks) {
+        Entry entry = new Entry(nextId++, script, intervalTicks, jitterTicks);
+        entry.nextRunTick = currentTick + entry.nextDelay();
+        entries.put(entry.id, entry);
+        save();
+        return entry;
+    }
+
+    public boolean remove(int id) {
+        if (entries.remove(id) == null) {
+            return false;
+        }
+        save();
+        return true;
+    }
+
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    private void onTickEnd(MinecraftServer server) {
+        currentTick++;
+        if (entries.isEmpty()) {
+            return;
+        }
+        PythonInterpreter pythonInterpreter = interpreter.get();
+        for (Entry entry : entries.values()) {
+            if (entry.nextRunTick > currentTick) {
+                continue;
+            }
+            entry.nextRunTick = currentTick + entry.nextDelay();
+            if (entry.lastRun != null && !entry.lastRun.isDone()) {
+                entry.skipped++;
+                LOGGER.debug("Skipping scheduled script #{} ({}): previous run still in progress", entry.id, entry.script);
+                continue;
+            }
+            entry.runs++;
+            // Silent source: errors are still logged by the interpreter, but scheduled runs do not spam the console.
+            entry.lastRun = pythonInterpreter.executeScriptFile(entry.script, server.getCommandSource().withSilent(), server);
+        }
+    }
+
+    public static class Entry {
+        private final int id;
+        private final String script;
+        private final int intervalTicks;
+        private final int jitterTicks;
+        private long nextRunTick;
+        private long runs = 0L;
+        private long skipped = 0L;
+        private CompletableFuture<Boolean> lastRun;
+
+        private Entry(int id, String script, int intervalTicks, int jitterTicks) {
+            this.id = id;
+            this.script = script;
+            this.intervalTicks = intervalTicks;
+            this.jitterTicks = jitterTicks;
+        }
+
+        // Random jitter spreads entries with the same interval over different ticks.
+        private long nextDelay() {
+            return intervalTicks + (jitterTicks > 0 ? ThreadLocalRandom.current().nextInt(jitterTicks + 1) : 0);
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getScript() {
+            return script;
+        }
+
+        public int getIntervalTicks() {
+            return intervalTicks;
+        }
+
+        public int getJitterTicks() {
+            return jitterTicks;
+        }
+
+        public long getNextRunTick() {
+            return nextRunTick;
+        }
+
+        public long getRuns() {
+            return runs;
+        }
+
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public boolean isRunning() {
+            return lastRun != null && !lastRun.isDone();
+        }
+    }
+
+    private static class StoredEntry {
+        private int id;
+        private String script;
+        private int interval;
+        private int jitter;
+
+        private StoredEntry(int id, String script, int interval, int jitter) {
+            this.id = id;
+            this.script = script;
+            this.interval = interval;
+            this.jitter = jitter;
+        }
+    }
+}
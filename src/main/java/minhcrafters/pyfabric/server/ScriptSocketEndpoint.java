@@ -0,0 +1,429 @@
+package minhcrafters.pyfabric.server;
+
+import minhcrafters.pyfabric.config.PyFabricConfig;
+import minhcrafters.pyfabric.python.PythonInterpreter;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.command.CommandOutput;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+// Optional local endpoint for external tooling, served by one non-blocking selector thread.
+// Every frame is a 4-byte big-endian length followed by the payload. A request payload is one kind byte
+// (0 = Python source, 1 = script file name) and UTF-8 text; a response payload is one status byte (0 = the script
+// ran, 1 = it could not be run) and the UTF-8 output of the run. Requests on a connection run concurrently,
+// responses come back in request order. When a secret is configured (always, for TCP), the first frame of every
+// connection must be kind 2 with the secret as its text; it is answered with an empty OK response, anything else
+// closes the connection.
+public class ScriptSocketEndpoint {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptSocketEndpoint.class);
+    private static final byte KIND_SOURCE = 0;
+    private static final byte KIND_FILE = 1;
+    private static final byte KIND_AUTH = 2;
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_FAILED = 1;
+    private static final String SCRIPT_NAME = "<socket>";
+
+    private final String endpoint;
+    private final byte[] secret;
+    private final int maxFrameBytes;
+    private final int maxPipelined;
+    private final Supplier<PythonInterpreter> interpreter;
+    // Connections with finished requests, handed from completion threads to the selector thread.
+    private final Queue<Connection> completed = new ConcurrentLinkedQueue<>();
+
+    private volatile Selector selector;
+    private volatile Thread selectorThread;
+    private ServerSocketChannel serverChannel;
+    private Path socketFile;
+    private MinecraftServer server;
+    private ServerCommandSource baseSource;
+
+    public ScriptSocketEndpoint(PyFabricConfig config, Supplier<PythonInterpreter> interpreter) {
+        this.endpoint = config.getSocketEndpoint();
+        this.secret = config.getSocketSecret().getBytes(StandardCharsets.UTF_8);
+        this.maxFrameBytes = config.getSocketMaxFrameBytes();
+        this.maxPipelined = config.getSocketMaxPipelined();
+        this.interpreter = interpreter;
+    }
+
+    // Called on the server thread once the server has started. Does nothing unless socket_endpoint is set.
+    public synchronized void start(MinecraftServer server) {
+        if (endpoint.isEmpty() || selectorThread != null) {
+            return;
+        }
+        this.server = server;
+        this.baseSource = server.getCommandSource();
+        try {
+            ServerSocketChannel channel;
+            SocketAddress address;
+            boolean unix = endpoint.startsWith("unix:");
+            if (unix) {
+                socketFile = Path.of(endpoint.substring("unix:".length())).toAbsolutePath();
+                // A socket file left behind by a crash would make the bind fail.
+                Files.deleteIfExists(socketFile);
+                address = UnixDomainSocketAddress.of(socketFile);
+                channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            } else {
+                // Every local user and process can reach a loopback port, so TCP is never served without a secret.
+                if (secret.length == 0) {
+                    LOGGER.error("Script socket endpoint '{}' not started: a TCP endpoint requires socket_secret to be set.", endpoint);
+                    return;
+                }
+                String port = endpoint.startsWith("tcp:") ? endpoint.substring("tcp:".length()) : endpoint;
+                // Loopback only: the endpoint runs arbitrary code with console permissions.
+                address = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(port.trim()));
+                channel = ServerSocketChannel.open();
+            }
+            serverChannel = channel;
+            channel.bind(address);
+            if (unix) {
+                restrictToOwner(socketFile);
+            }
+            channel.configureBlocking(false);
+            selector = Selector.open();
+            channel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.error("Failed to open script socket endpoint '{}': {}", endpoint, e.getMessage());
+            closeQuietly();
+            return;
+        }
+        Thread thread = new Thread(this::selectLoop, "PyFabric-Socket");
+        thread.setDaemon(true);
+        selectorThread = thread;
+        thread.start();
+        LOGGER.info("Script socket endpoint listening on {}", endpoint);
+    }
+
+    // Only the server's own user may connect to the socket file. Connections accepted before the permissions are set
+    // are still refused by the secret, if one is configured.
+    private static void restrictToOwner(Path file) throws IOException {
+        try {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            LOGGER.warn("Cannot restrict permissions of script socket {} on this file system; set socket_secret.", file);
+        }
+    }
+
+    public synchronized void stop() {
+        Thread thread = selectorThread;
+        selectorThread = null;
+        if (thread == null) {
+            return;
+        }
+        Selector currentSelector = selector;
+        if (currentSelector != null) {
+            currentSelector.wakeup();
+        }
+        try {
+            thread.join(1000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeQuietly();
+        completed.clear();
+        LOGGER.info("Script socket endpoint closed.");
+    }
+
+    private void closeQuietly() {
+        try {
+            Selector currentSelector = selector;
+            if (currentSelector != null) {
+                for (SelectionKey key : currentSelector.keys()) {
+                    key.channel().close();
+                }
+                currentSelector.close();
+            }
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+            if (socketFile != null) {
+                Files.deleteIfExists(socketFile);
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            LOGGER.debug("Error closing script socket endpoint: {}", e.getMessage());
+        }
+        selector = null;
+        serverChannel = null;
+        socketFile = null;
+    }
+
+    private void selectLoop() {
+        while (selectorThread == Thread.currentThread()) {
+            try {
+                selector.select();
+                Connection connection;
+                while ((connection = completed.poll()) != null) {
+                    connection.collectResponses();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection keyConnection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            keyConnection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            keyConnection.write();
+                        }
+                    } catch (IOException e) {
+                        LOGGER.debug("Script socket connection closed: {}", e.getMessage());
+                        keyConnection.close();
+                    }
+                }
+            } catch (ClosedSelectorException e) {
+                return;
+            } catch (IOException e) {
+                LOGGER.error("Error in script socket endpoint", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    // A run that raised or was stopped completes normally with false; only a run that could not start fails.
+    static byte statusOf(Boolean succeeded, Throwable error) {
+        return error == null && Boolean.TRUE.equals(succeeded) ? STATUS_OK : STATUS_FAILED;
+    }
+
+    private static ByteBuffer encodeResponse(byte status, String text) {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(5 + body.length);
+        buffer.putInt(1 + body.length).put(status).put(body);
+        return buffer.flip();
+    }
+
+    private static class PendingRequest {
+        private volatile ByteBuffer response;
+    }
+
+    // All fields are only touched on the selector thread.
+    private final class Connection {
+        private final SocketChannel channel;
+        private final Deque<PendingRequest> pending = new ArrayDeque<>();
+        private final Deque<ByteBuffer> writes = new ArrayDeque<>();
+        private SelectionKey key;
+        private ByteBuffer readBuffer = ByteBuffer.allocate(8192);
+        private boolean inputClosed = false;
+        private boolean authenticated = secret.length == 0;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void read() throws IOException {
+            if (channel.read(readBuffer) < 0) {
+                // The client may half-close after sending its requests and still wait for the responses.
+                inputClosed = true;
+            }
+            parseFrames();
+            updateInterest();
+        }
+
+        private void parseFrames() throws IOException {
+            readBuffer.flip();
+            int needed = 0;
+            while (pending.size() < maxPipelined && readBuffer.remaining() >= 4) {
+                int length = readBuffer.getInt(readBuffer.position());
+                if (length < 1 || length > maxFrameBytes) {
+                    throw new IOException("invalid frame length " + length);
+                }
+                if (readBuffer.remaining() < 4 + length) {
+                    needed = 4 + length;
+                    break;
+                }
+                readBuffer.getInt();
+                byte kind = readBuffer.get();
+                byte[] body = new byte[length - 1];
+                readBuffer.get(body);
+                if (!authenticated) {
+                    authenticate(kind, body);
+                    continue;
+                }
+                submit(kind, new String(body, StandardCharsets.UTF_8));
+            }
+            readBuffer.compact();
+            if (needed > readBuffer.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocate(needed);
+                readBuffer.flip();
+                larger.put(readBuffer);
+                readBuffer = larger;
+            }
+        }
+
+        private void authenticate(byte kind, byte[] body) throws IOException {
+            // Compared in constant time, so response timing does not reveal how much of a guess was right.
+            if (kind != KIND_AUTH || !MessageDigest.isEqual(body, secret)) {
+                LOGGER.warn("Script socket connection failed to authenticate, closing it.");
+                throw new IOException("authentication failed");
+            }
+            authenticated = true;
+            writes.addLast(encodeResponse(STATUS_OK, ""));
+        }
+
+        private void submit(byte kind, String body) {
+            PendingRequest request = new PendingRequest();
+            pending.addLast(request);
+            CapturedOutput output = new CapturedOutput();
+            ServerCommandSource source = baseSource.withOutput(output);
+            CompletableFuture<Boolean> run;
+            try {
+                PythonInterpreter pythonInterpreter = interpreter.get();
+                if (pythonInterpreter == null) {
+                    run = CompletableFuture.failedFuture(new IllegalStateException("Python interpreter is not available"));
+                } else if (kind == KIND_SOURCE) {
+                    run = pythonInterpreter.executeScript(body, source, server, SCRIPT_NAME);
+                } else if (kind == KIND_FILE) {
+                    run = pythonInterpreter.executeScriptFile(body, source, server);
+                } else {
+                    run = CompletableFuture.failedFuture(new IllegalArgumentException("Unknown request kind " + kind));
+                }
+            } catch (RuntimeException e) {
+                run = CompletableFuture.failedFuture(e);
+            }
+            run.whenComplete((succeeded, error) -> {
+                request.response = encodeResponse(statusOf(succeeded, error), output.getText(error));
+                completed.offer(this);
+                Selector currentSelector = selector;
+                if (currentSelector != null) {
+                    currentSelector.wakeup();
+                }
+            });
+        }
+
+        // Moves finished requests at the head of the pipeline to the write queue, keeping request order.
+        private void collectResponses() {
+            if (!channel.isOpen()) {
+                return;
+            }
+            while (!pending.isEmpty() && pending.peekFirst().response != null) {
+                writes.addLast(pending.pollFirst().response);
+            }
+            try {
+                // Frames held back while the pipeline was full can be started now.
+                parseFrames();
+                write();
+            } catch (IOException e) {
+                LOGGER.debug("Script socket connection closed: {}", e.getMessage());
+                close();
+            }
+        }
+
+        private void write() throws IOException {
+            while (!writes.isEmpty()) {
+                ByteBuffer buffer = writes.peekFirst();
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+                writes.pollFirst();
+            }
+            updateInterest();
+        }
+
+        private void updateInterest() {
+            if (inputClosed && pending.isEmpty() && writes.isEmpty()) {
+                close();
+                return;
+            }
+            int ops = 0;
+            if (!inputClosed && pending.size() < maxPipelined) {
+                ops |= SelectionKey.OP_READ;
+            }
+            if (!writes.isEmpty()) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            if (key.isValid()) {
+                key.interestOps(ops);
+            }
+        }
+
+        private void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.debug("Error closing script socket connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Collects what the run sends to its command source. Called from the server thread and the script threads.
+    private static class CapturedOutput implements CommandOutput {
+        private final StringBuilder text = new StringBuilder();
+
+        @Override
+        public synchronized void sendMessage(Text message) {
+            if (!text.isEmpty()) {
+                text.append('\n');
+            }
+            text.append(message.getString());
+        }
+
+        @Override
+        public boolean shouldReceiveFeedback() {
+            return true;
+        }
+
+        @Override
+        public boolean shouldTrackOutput() {
+            return true;
+        }
+
+        @Override
+        public boolean shouldBroadcastConsoleToOps() {
+            return false;
+        }
+
+        private synchronized String getText(Throwable error) {
+            if (error != null && text.isEmpty()) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                return String.valueOf(cause.getMessage());
+            }
+            return text.toString();
+        }
+    }
+}
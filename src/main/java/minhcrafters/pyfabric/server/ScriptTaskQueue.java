@@ -0,0 +1,172 @@
+package minhcrafters.pyfabric.server;
+
+import minhcrafters.pyfabric.config.PyFabricConfig;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+public class ScriptTaskQueue {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptTaskQueue.class);
+    private static final double TICK_TIME_SMOOTHING = 0.1;
+
+    private final BlockingQueue<QueuedTask<?>> queue;
+    private final long maxBudgetNanos;
+    private final long minBudgetNanos;
+    private final long targetTickNanos;
+    private final long offerTimeoutMillis;
+
+    private volatile boolean accepting = false;
+    private long tickStartNanos = 0L;
+    private boolean tickEndSeen = true;
+    private double averageTickWorkNanos = 0.0;
+    private volatile long currentBudgetNanos;
+    private volatile long lastDrainedCount = 0L;
+
+    public ScriptTaskQueue(PyFabricConfig config) {
+        this(config.getTaskQueueCapacity(), config.getTickBudgetMicros(), config.getMinTickBudgetMicros(),
+                config.getMsptTargetMillis(), config.getTaskQueueOfferTimeoutMillis());
+    }
+
+    public ScriptTaskQueue(int capacity, long maxBudgetMicros, long minBudgetMicros, long msptTargetMillis, long offerTimeoutMillis) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBudgetNanos = maxBudgetMicros * 1_000L;
+        this.minBudgetNanos = Math.min(minBudgetMicros * 1_000L, maxBudgetNanos);
+        this.targetTickNanos = msptTargetMillis * 1_000_000L;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.currentBudgetNanos = maxBudgetNanos;
+    }
+
+    public void register() {
+        ServerTickEvents.START_SERVER_TICK.register(server -> startTick());
+        ServerTickEvents.END_SERVER_TICK.register(server -> endTick());
+    }
+
+    public void start() {
+        accepting = true;
+    }
+
+    public void stop() {
+        accepting = false;
+        List<QueuedTask<?>> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        for (QueuedTask<?> task : pending) {
+            task.future.completeExceptionally(new CancellationException("Server is stopping"));
+        }
+        if (!pending.isEmpty()) {
+            LOGGER.info("Cancelled {} pending script task(s) on shutdown.", pending.size());
+        }
+    }
+
+    /**
+     * Queues a task for the server thread. Blocks the calling script thread while the queue is full and
+     * fails with {@link RejectedExecutionException} if no slot frees up within the configured timeout.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> action) {
+        if (!accepting) {
+            throw new RejectedExecutionException("Script task queue is not accepting tasks (server not running)");
+        }
+        QueuedTask<T> task = new QueuedTask<>(action);
+        try {
+            if (!queue.offer(task, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("Script task queue is full (" + queue.size() + " pending tasks)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for space in the script task queue", e);
+        }
+        return task.future;
+    }
+
+    public CompletableFuture<Void> execute(Runnable action) {
+        return submit(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // Called from the server tick events; public so a stand-in thread can drive the queue outside a server.
+    public void startTick() {
+        // The tick end event is skipped while the server is paused, so drain here to keep scripts moving.
+        if (!tickEndSeen) {
+            drain(currentBudgetNanos);
+        }
+        tickEndSeen = false;
+        tickStartNanos = System.nanoTime();
+    }
+
+    public void endTick() {
+        tickEndSeen = true;
+        long tickWorkNanos = System.nanoTime() - tickStartNanos;
+        averageTickWorkNanos += (tickWorkNanos - averageTickWorkNanos) * TICK_TIME_SMOOTHING;
+        currentBudgetNanos = computeBudget();
+        drain(currentBudgetNanos);
+    }
+
+    private long computeBudget() {
+        // Leave a tenth of the target tick time as headroom for the rest of the server.
+        long headroom = (long) (targetTickNanos * 0.9 - averageTickWorkNanos);
+        return Math.max(minBudgetNanos, Math.min(maxBudgetNanos, headroom));
+    }
+
+    private void drain(long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        long drained = 0L;
+        QueuedTask<?> task;
+        do {
+            task = queue.poll();
+            if (task == null) {
+                break;
+            }
+            task.run();
+            drained++;
+        } while (System.nanoTime() < deadline);
+        lastDrainedCount = drained;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getCurrentBudgetMicros() {
+        return currentBudgetNanos / 1_000L;
+    }
+
+    public double getAverageTickWorkMillis() {
+        return averageTickWorkNanos / 1_000_000.0;
+    }
+
+    public long getLastDrainedCount() {
+        return lastDrainedCount;
+    }
+
+    private static class QueuedTask<T> {
+        private final Supplier<T> action;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private QueuedTask(Supplier<T> action) {
+            this.action = action;
+        }
+
+        private void run() {
+            if (future.isDone()) {
+                // Cancelled by a stopped script while waiting in the queue.
+                return;
+            }
+            try {
+                future.complete(action.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+}
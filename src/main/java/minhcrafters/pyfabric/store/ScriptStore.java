@@ -0,0 +1,323 @@
+package minhcrafters.pyfabric.store;
+
+import minhcrafters.pyfabric.config.PyFabricConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Key-value store shared by all scripts (mc.store). Values are longs, doubles, booleans or strings. Every update runs
+// under the map's per-key lock and is appended to the current log before it becomes visible, so the log replays to
+// the same state after a restart. A background thread compacts the log into a new generation holding one record per
+// live key once most of it is garbage.
+public class ScriptStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptStore.class);
+    public static final Path STORE_DIR = PyFabricConfig.CONFIG_DIR.resolve("store");
+    private static final Pattern LOG_NAME = Pattern.compile("store\\.(\\d+)\\.log");
+    public static final int MAX_KEY_BYTES = 1024;
+    public static final int MAX_STRING_BYTES = 1 << 20;
+    private static final int MIN_COMPACT_BYTES = 1 << 20;
+
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+    // Updates hold the read lock, compaction the write lock, so a snapshot never misses a logged update.
+    private final ReadWriteLock logLock = new ReentrantReadWriteLock();
+    private final AtomicLong liveBytes = new AtomicLong();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "PyFabric-StoreCompactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Path directory;
+    private final int initialCapacity;
+    // Null if the store could not be opened; it then works in memory only.
+    private volatile StoreLog log;
+
+    private ScriptStore(Path directory, int initialCapacity) {
+        this.directory = directory;
+        this.initialCapacity = initialCapacity;
+    }
+
+    public static ScriptStore open(PyFabricConfig config) {
+        return open(STORE_DIR, config.getStoreLogInitialBytes());
+    }
+
+    static ScriptStore open(Path directory, int initialCapacity) {
+        ScriptStore store = new ScriptStore(directory, initialCapacity);
+        try {
+            store.load();
+        } catch (IOException e) {
+            LOGGER.error("Failed to open script store in {}, values will not be persisted", directory, e);
+        }
+        return store;
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.filter(path -> LOG_NAME.matcher(path.getFileName().toString()).matches()).forEach(files::add);
+        }
+        files.sort(Comparator.comparingLong(ScriptStore::generationOf).reversed());
+
+        StoreLog opened = null;
+        for (Path file : files) {
+            if (opened == null) {
+                // The newest generation may be a compaction that never committed; fall back to the one before.
+                opened = StoreLog.open(file, initialCapacity, (key, value) -> {
+                    if (value == null) {
+                        values.remove(key);
+                    } else {
+                        values.put(key, value);
+                    }
+                });
+                if (opened != null) {
+                    continue;
+                }
+                values.clear();
+            }
+            Files.deleteIfExists(file);
+        }
+        if (opened == null) {
+            opened = StoreLog.create(logPath(1L), 1L, initialCapacity);
+            opened.commit();
+        }
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            liveBytes.addAndGet(StoreLog.recordLength(keyBytes(entry.getKey()).length, entry.getValue()));
+        }
+        log = opened;
+        LOGGER.info("Loaded {} stored value(s) from {}", values.size(), opened.getPath());
+    }
+
+    public Object get(String key) {
+        return values.get(key);
+    }
+
+    public boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public List<String> keys(String prefix) {
+        List<String> keys = new ArrayList<>();
+        for (String key : values.keySet()) {
+            if (prefix == null || key.startsWith(prefix)) {
+                keys.add(key);
+            }
+        }
+        keys.sort(null);
+        return keys;
+    }
+
+    // A null value removes the key.
+    public void put(String key, Object value) {
+        checkValue(value);
+        update(key, old -> value);
+    }
+
+    public boolean remove(String key) {
+        return update(key, old -> null) != null;
+    }
+
+    // Adds delta to an integer value (a missing key counts as 0) and returns the new value.
+    public long incr(String key, long delta) {
+        Object[] result = new Object[1];
+        update(key, old -> {
+            if (old != null && !(old instanceof Long)) {
+                throw new IllegalStateException("Value of '" + key + "' is not an integer");
+            }
+            long updated = (old == null ? 0L : (Long) old) + delta;
+            result[0] = updated;
+            return updated;
+        });
+        return (Long) result[0];
+    }
+
+    // Sets the key to update (null removes it) only if its current value equals expected (null: the key is absent).
+    public boolean compareAndSet(String key, Object expected, Object update) {
+        checkValue(update);
+        boolean[] swapped = new boolean[1];
+        update(key, old -> {
+            swapped[0] = old == null ? expected == null : old.equals(expected);
+            return swapped[0] ? update : old;
+        });
+        return swapped[0];
+    }
+
+    // Returns the previous value.
+    private Object update(String key, UnaryOperator<Object> function) {
+        byte[] keyBytes = keyBytes(key);
+        while (true) {
+            Object[] previous = new Object[1];
+            boolean[] logged = {true};
+            int[] pendingBytes = new int[1];
+            StoreLog current;
+            logLock.readLock().lock();
+            try {
+                StoreLog target = log;
+                current = target;
+                values.compute(key, (k, old) -> {
+                    previous[0] = old;
+                    Object updated = function.apply(old);
+                    if (updated == old || (updated != null && updated.equals(old))) {
+                        return old;
+                    }
+                    if (target != null && !target.append(keyBytes, updated)) {
+                        logged[0] = false;
+                        pendingBytes[0] = StoreLog.recordLength(keyBytes.length, updated);
+                        return old;
+                    }
+                    liveBytes.addAndGet(liveSize(keyBytes, updated) - liveSize(keyBytes, old));
+                    return updated;
+                });
+            } finally {
+                logLock.readLock().unlock();
+            }
+            if (logged[0]) {
+                maybeScheduleCompaction();
+                return previous[0];
+            }
+            // The log is full: compact right away (growing it if needed) and retry.
+            if (!compact(current, pendingBytes[0])) {
+                throw new IllegalStateException("Script store log is full and could not be compacted");
+            }
+        }
+    }
+
+    private void maybeScheduleCompaction() {
+        StoreLog current = log;
+        if (current == null) {
+            return;
+        }
+        int used = current.getUsedBytes();
+        boolean nearlyFull = used > current.getCapacity() / 4 * 3;
+        boolean mostlyGarbage = used > MIN_COMPACT_BYTES && used > 4 * liveBytes.get();
+        if ((nearlyFull || mostlyGarbage) && compactionScheduled.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    compact(current, 0);
+                } finally {
+                    compactionScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    // Writes every live value into a new log generation and switches to it, unless another compaction already
+    // replaced the given log. The new log has room for at least extraBytes more. Updates wait while this runs.
+    private boolean compact(StoreLog expected, int extraBytes) {
+        logLock.writeLock().lock();
+        try {
+            StoreLog old = log;
+            if (old == null) {
+                return false;
+            }
+            if (old != expected) {
+                return true;
+            }
+            long needed = StoreLog.HEADER_BYTES + liveBytes.get() + extraBytes;
+            long capacity = Math.max(initialCapacity, needed * 2);
+            if (capacity > Integer.MAX_VALUE - 8) {
+                LOGGER.error("Script store holds {} bytes, too much for a single log file", needed);
+                return false;
+            }
+            long generation = old.getGeneration() + 1;
+            StoreLog next = StoreLog.create(logPath(generation), generation, (int) capacity);
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                next.append(keyBytes(entry.getKey()), entry.getValue());
+            }
+            next.commit();
+            log = next;
+            old.close();
+            try {
+                Files.deleteIfExists(old.getPath());
+            } catch (IOException e) {
+                // Still mapped on some platforms; it is removed on the next start.
+                LOGGER.debug("Could not delete old store log {}: {}", old.getPath(), e.getMessage());
+            }
+            LOGGER.debug("Compacted script store: {} value(s), {} of {} bytes used", values.size(), next.getUsedBytes(), next.getCapacity());
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("Failed to compact script store", e);
+            return false;
+        } finally {
+            logLock.writeLock().unlock();
+        }
+    }
+
+    // The current log generation, or 0 if the store is in memory only.
+    long getGeneration() {
+        StoreLog current = log;
+        return current == null ? 0L : current.getGeneration();
+    }
+
+    // Flushes and unmaps the log; the store must not be used afterwards.
+    public void close() {
+        compactor.shutdown();
+        logLock.writeLock().lock();
+        try {
+            StoreLog current = log;
+            log = null;
+            if (current != null) {
+                current.close();
+            }
+        } finally {
+            logLock.writeLock().unlock();
+        }
+    }
+
+    private static int liveSize(byte[] keyBytes, Object value) {
+        return value == null ? 0 : StoreLog.recordLength(keyBytes.length, value);
+    }
+
+    private static byte[] keyBytes(String key) {
+        if (key == null || key.isEmpty()) {
+            throw new IllegalArgumentException("Store keys must not be empty");
+        }
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("Store key is longer than " + MAX_KEY_BYTES + " bytes");
+        }
+        return bytes;
+    }
+
+    private static void checkValue(Object value) {
+        if (value instanceof String string && string.length() * 3L > MAX_STRING_BYTES
+                && string.getBytes(StandardCharsets.UTF_8).length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Stored strings are limited to " + MAX_STRING_BYTES + " bytes");
+        }
+        if (value != null && !(value instanceof Long || value instanceof Double || value instanceof Boolean || value instanceof String)) {
+            throw new IllegalArgumentException("Unsupported store value type: " + value.getClass().getSimpleName());
+        }
+    }
+
+    private Path logPath(long generation) {
+        return directory.resolve("store." + generation + ".log");
+    }
+
+    private static long generationOf(Path path) {
+        Matcher matcher = LOG_NAME.matcher(path.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1L;
+    }
+}
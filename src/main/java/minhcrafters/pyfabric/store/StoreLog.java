@@ -0,0 +1,242 @@
+package minhcrafters.pyfabric.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+// One generation of the store's append-only log, in a memory-mapped file. Writers reserve space for a record with a
+// single atomic add, so writes to different keys append concurrently. The length prefix of a record is written
+// last; a zero length marks the end of the log.
+//
+// Layout: header (magic, version, generation), then records of
+// [int length][byte op][short key length][key][byte type][value] where the value part is absent for removals.
+final class StoreLog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StoreLog.class);
+
+    private static final int MAGIC = 0x50595354;
+    private static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte TYPE_LONG = 0;
+    private static final byte TYPE_DOUBLE = 1;
+    private static final byte TYPE_BOOLEAN = 2;
+    private static final byte TYPE_STRING = 3;
+
+    private final Path path;
+    private final long generation;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final AtomicInteger position;
+
+    private StoreLog(Path path, long generation, FileChannel channel, MappedByteBuffer buffer, int position) {
+        this.path = path;
+        this.generation = generation;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.position = new AtomicInteger(position);
+    }
+
+    // A new, empty log. It is not valid on disk until commit() writes the header.
+    static StoreLog create(Path path, long generation, int capacity) throws IOException {
+        Files.deleteIfExists(path);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new StoreLog(path, generation, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity), HEADER_BYTES);
+    }
+
+    // Opens a committed log and replays its records in order. Returns null if the file has no valid header.
+    static StoreLog open(Path path, int minCapacity, BiConsumer<String, Object> replay) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = channel.size();
+        if (fileSize < HEADER_BYTES || fileSize > Integer.MAX_VALUE) {
+            channel.close();
+            return null;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(fileSize, minCapacity));
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            channel.close();
+            return null;
+        }
+        long generation = buffer.getLong(8);
+        int offset = HEADER_BYTES;
+        while (offset + 4 <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + 4 + length > buffer.capacity()) {
+                break;
+            }
+            try {
+                readRecord(buffer, offset + 4, replay);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Store log {} has a damaged record at offset {}, ignoring the rest: {}", path, offset, e.getMessage());
+                break;
+            }
+            offset += 4 + length;
+        }
+        zeroTail(buffer, offset);
+        return new StoreLog(path, generation, channel, buffer, offset);
+    }
+
+    // Clears everything after the last complete record before new appends go there. Zeroing only the first length
+    // would leave older records behind a torn one in place, and replay would pick them up again after the first new
+    // record that ends where one of them starts.
+    private static void zeroTail(MappedByteBuffer buffer, int offset) {
+        byte[] zeros = new byte[Math.min(64 * 1024, Math.max(0, buffer.capacity() - offset))];
+        boolean dirty = false;
+        for (int index = offset; index < buffer.capacity(); index += zeros.length) {
+            int length = Math.min(zeros.length, buffer.capacity() - index);
+            if (!isZero(buffer, index, length)) {
+                buffer.put(index, zeros, 0, length);
+                dirty = true;
+            }
+        }
+        if (dirty) {
+            buffer.force();
+        }
+    }
+
+    private static boolean isZero(MappedByteBuffer buffer, int index, int length) {
+        int end = index + length;
+        for (; index + 8 <= end; index += 8) {
+            if (buffer.getLong(index) != 0) {
+                return false;
+            }
+        }
+        for (; index < end; index++) {
+            if (buffer.get(index) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    int getUsedBytes() {
+        return Math.min(position.get(), buffer.capacity());
+    }
+
+    int getCapacity() {
+        return buffer.capacity();
+    }
+
+    // Returns false if the log is full; the caller has to compact into a new generation.
+    boolean append(byte[] key, Object value) {
+        byte[] stringBytes = value instanceof String string ? string.getBytes(StandardCharsets.UTF_8) : null;
+        int length = bodyLength(key.length, value, stringBytes);
+        int offset = position.getAndAdd(4 + length);
+        if (offset < 0 || offset + 4 + length > buffer.capacity()) {
+            return false;
+        }
+        // Absolute puts only: every writer touches its own reserved range and never the buffer's position.
+        int index = offset + 4;
+        buffer.put(index++, value == null ? OP_REMOVE : OP_PUT);
+        buffer.putShort(index, (short) key.length);
+        index += 2;
+        buffer.put(index, key);
+        index += key.length;
+        if (value instanceof Long longValue) {
+            buffer.put(index++, TYPE_LONG);
+            buffer.putLong(index, longValue);
+        } else if (value instanceof Double doubleValue) {
+            buffer.put(index++, TYPE_DOUBLE);
+            buffer.putDouble(index, doubleValue);
+        } else if (value instanceof Boolean booleanValue) {
+            buffer.put(index++, TYPE_BOOLEAN);
+            buffer.put(index, (byte) (booleanValue ? 1 : 0));
+        } else if (stringBytes != null) {
+            buffer.put(index++, TYPE_STRING);
+            buffer.putInt(index, stringBytes.length);
+            buffer.put(index + 4, stringBytes);
+        }
+        buffer.putInt(offset, length);
+        return true;
+    }
+
+    // Size of the record for a key/value pair, used to estimate how much of the log is still live.
+    static int recordLength(int keyLength, Object value) {
+        byte[] stringBytes = value instanceof String string ? string.getBytes(StandardCharsets.UTF_8) : null;
+        return 4 + bodyLength(keyLength, value, stringBytes);
+    }
+
+    private static int bodyLength(int keyLength, Object value, byte[] stringBytes) {
+        int length = 1 + 2 + keyLength;
+        if (value == null) {
+            return length;
+        }
+        length += 1;
+        if (value instanceof Long || value instanceof Double) {
+            return length + 8;
+        }
+        if (value instanceof Boolean) {
+            return length + 1;
+        }
+        return length + 4 + stringBytes.length;
+    }
+
+    // Makes the log the valid generation on disk: its records are flushed before the header is written.
+    void commit() {
+        buffer.force();
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, generation);
+        buffer.force();
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void close() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.warn("Error closing store log {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static void readRecord(MappedByteBuffer buffer, int index, BiConsumer<String, Object> replay) {
+        byte op = buffer.get(index++);
+        byte[] key = new byte[buffer.getShort(index) & 0xFFFF];
+        index += 2;
+        buffer.get(index, key);
+        index += key.length;
+        String keyString = new String(key, StandardCharsets.UTF_8);
+        if (op == OP_REMOVE) {
+            replay.accept(keyString, null);
+            return;
+        }
+        if (op != OP_PUT) {
+            throw new IllegalStateException("unknown op " + op);
+        }
+        byte type = buffer.get(index++);
+        Object value = switch (type) {
+            case TYPE_LONG -> buffer.getLong(index);
+            case TYPE_DOUBLE -> buffer.getDouble(index);
+            case TYPE_BOOLEAN -> buffer.get(index) != 0;
+            case TYPE_STRING -> {
+                byte[] bytes = new byte[buffer.getInt(index)];
+                buffer.get(index + 4, bytes);
+                yield new String(bytes, StandardCharsets.UTF_8);
+            }
+            default -> throw new IllegalStateException("unknown value type " + type);
+        };
+        replay.accept(keyString, value);
+    }
+}
@@ -0,0 +1,121 @@
+package minhcrafters.pyfabric.api;
+
+import net.minecraft.util.math.BlockPos;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockStateCacheSegmentTest {
+    @Test
+    void evictsLeastRecentlyUsed() {
+        BlockStateCache.Segment<String> segment = new BlockStateCache.Segment<>(2);
+        long a = BlockPos.asLong(0, 64, 0);
+        long b = BlockPos.asLong(1, 64, 0);
+        long c = BlockPos.asLong(2, 64, 0);
+        segment.put(a, "a");
+        segment.put(b, "b");
+        assertEquals("a", segment.get(a));
+        segment.put(c, "c");
+
+        assertEquals(2, segment.size());
+        assertEquals("a", segment.get(a));
+        assertNull(segment.get(b));
+        assertEquals("c", segment.get(c));
+    }
+
+    @Test
+    void replacingAnEntryDoesNotGrow() {
+        BlockStateCache.Segment<String> segment = new BlockStateCache.Segment<>(4);
+        long pos = BlockPos.asLong(5, 70, -5);
+        segment.put(pos, "old");
+        segment.put(pos, "new");
+        assertEquals(1, segment.size());
+        assertEquals(1, segment.indexedChunks());
+        assertEquals("new", segment.get(pos));
+    }
+
+    @Test
+    void removeChunkDropsOnlyThatChunk() {
+        BlockStateCache.Segment<String> segment = new BlockStateCache.Segment<>(64);
+        long inside = BlockPos.asLong(-1, 10, -1);
+        long insideToo = BlockPos.asLong(-16, 200, -16);
+        long neighbour = BlockPos.asLong(0, 10, 0);
+        segment.put(inside, "inside");
+        segment.put(insideToo, "insideToo");
+        segment.put(neighbour, "neighbour");
+        assertEquals(2, segment.indexedChunks());
+
+        segment.removeChunk(-1, -1);
+        assertNull(segment.get(inside));
+        assertNull(segment.get(insideToo));
+        assertEquals("neighbour", segment.get(neighbour));
+        assertEquals(1, segment.size());
+        assertEquals(1, segment.indexedChunks());
+
+        segment.removeChunk(7, 7);
+        assertEquals(1, segment.size());
+    }
+
+    // Entries that leave through eviction or removal must leave the chunk index too, or it grows without bound.
+    @Test
+    void chunkIndexFollowsEvictionAndRemoval() {
+        BlockStateCache.Segment<String> segment = new BlockStateCache.Segment<>(8);
+        for (int chunk = 0; chunk < 100; chunk++) {
+            segment.put(BlockPos.asLong(chunk * 16, 64, 0), "block");
+        }
+        assertEquals(8, segment.size());
+        assertEquals(8, segment.indexedChunks());
+
+        for (int chunk = 92; chunk < 100; chunk++) {
+            segment.remove(BlockPos.asLong(chunk * 16, 64, 0));
+        }
+        assertEquals(0, segment.size());
+        assertEquals(0, segment.indexedChunks());
+    }
+
+    @Test
+    void concurrentAccessKeepsIndexConsistent() throws InterruptedException {
+        BlockStateCache.Segment<String> segment = new BlockStateCache.Segment<>(256);
+        int threads = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 20_000; i++) {
+                    int x = (i * 7 + worker) % 128;
+                    int z = (i * 13) % 128;
+                    long pos = BlockPos.asLong(x, 64, z);
+                    switch (i % 4) {
+                        case 0, 1 -> segment.put(pos, "block");
+                        case 2 -> segment.get(pos);
+                        default -> segment.removeChunk(x >> 4, z >> 4);
+                    }
+                }
+            });
+            workers.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : workers) {
+            thread.join();
+        }
+        assertTrue(segment.size() <= 256);
+        for (int x = 0; x < 8; x++) {
+            for (int z = 0; z < 8; z++) {
+                segment.removeChunk(x, z);
+            }
+        }
+        assertEquals(0, segment.size());
+        assertEquals(0, segment.indexedChunks());
+    }
+}
@@ -0,0 +1,130 @@
+package minhcrafters.pyfabric.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventRingBufferTest {
+    @Test
+    void roundsCapacityUpToPowerOfTwo() {
+        assertEquals(2, new EventRingBuffer<>(0).capacity());
+        assertEquals(2, new EventRingBuffer<>(2).capacity());
+        assertEquals(4, new EventRingBuffer<>(3).capacity());
+        assertEquals(4, new EventRingBuffer<>(4).capacity());
+        assertEquals(8, new EventRingBuffer<>(5).capacity());
+        assertEquals(8, new EventRingBuffer<>(8).capacity());
+        assertEquals(1024, new EventRingBuffer<>(1000).capacity());
+    }
+
+    @Test
+    void rejectsCapacityAboveLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new EventRingBuffer<>((1 << 30) + 1));
+        assertThrows(IllegalArgumentException.class, () -> new EventRingBuffer<>(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void rejectsOffersWhenFull() {
+        EventRingBuffer<Integer> buffer = new EventRingBuffer<>(4);
+        for (int i = 0; i < buffer.capacity(); i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(-1));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(1, buffer.drainTo(drained, 1));
+        assertTrue(buffer.offer(4));
+        assertFalse(buffer.offer(-1));
+    }
+
+    @Test
+    void drainsInOfferOrderAcrossWrapAround() {
+        EventRingBuffer<Integer> buffer = new EventRingBuffer<>(4);
+        List<Integer> drained = new ArrayList<>();
+        int next = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(buffer.offer(next++));
+            }
+            buffer.drainTo(drained, Integer.MAX_VALUE);
+            assertTrue(buffer.isEmpty());
+        }
+        for (int i = 0; i < next; i++) {
+            assertEquals(i, drained.get(i));
+        }
+    }
+
+    @Test
+    void drainStopsAtMaxElements() {
+        EventRingBuffer<Integer> buffer = new EventRingBuffer<>(8);
+        for (int i = 0; i < 5; i++) {
+            buffer.offer(i);
+        }
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, buffer.drainTo(drained, 2));
+        assertEquals(List.of(0, 1), drained);
+        assertFalse(buffer.isEmpty());
+        assertEquals(3, buffer.drainTo(drained, 10));
+        assertTrue(buffer.isEmpty());
+    }
+
+    // Several producers against one drainer: every element arrives exactly once and each producer's elements
+    // arrive in the order it offered them.
+    @Test
+    void concurrentProducersLoseNothing() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 200_000;
+        EventRingBuffer<long[]> buffer = new EventRingBuffer<>(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long i = 0; i < perProducer; i++) {
+                    long[] element = {producer, i};
+                    while (!buffer.offer(element)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }, "RingBufferTest-Producer-" + p);
+            threads.add(thread);
+            thread.start();
+        }
+
+        long[] expected = new long[producers];
+        List<long[]> drained = new ArrayList<>();
+        long received = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        start.countDown();
+        while (received < (long) producers * perProducer) {
+            assertTrue(System.nanoTime() < deadline, "timed out after " + received + " elements");
+            drained.clear();
+            if (buffer.drainTo(drained, 32) == 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            for (long[] element : drained) {
+                int producer = (int) element[0];
+                assertEquals(expected[producer], element[1], "producer " + producer + " out of order");
+                expected[producer]++;
+            }
+            received += drained.size();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(buffer.isEmpty());
+        for (long count : expected) {
+            assertEquals(perProducer, count);
+        }
+    }
+}
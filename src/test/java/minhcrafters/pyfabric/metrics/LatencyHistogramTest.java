@@ -0,0 +1,55 @@
+package minhcrafters.pyfabric.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0.0, histogram.getMeanNanos());
+        assertEquals(0L, histogram.getPercentileNanos(99));
+    }
+
+    @Test
+    void percentilesReportBucketUpperBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(1_000L);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1_000_000L);
+        }
+        assertEquals(100L, histogram.getCount());
+        assertEquals(1_000_000L, histogram.getMaxNanos());
+        assertEquals(90 * 1_000L + 10 * 1_000_000L, histogram.getTotalNanos());
+        // 1000 falls in [512, 1024), 1000000 in [2^19, 2^20).
+        assertEquals(1023L, histogram.getPercentileNanos(50));
+        assertEquals(1023L, histogram.getPercentileNanos(90));
+        assertEquals((1L << 20) - 1, histogram.getPercentileNanos(91));
+        assertEquals((1L << 20) - 1, histogram.getPercentileNanos(100));
+    }
+
+    @Test
+    void negativeAndZeroSamplesCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5L);
+        histogram.record(0L);
+        assertEquals(2L, histogram.getCount());
+        assertEquals(0L, histogram.getTotalNanos());
+        assertEquals(1L, histogram.getPercentileNanos(100));
+    }
+
+    @Test
+    void resetClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(123_456L);
+        histogram.reset();
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getTotalNanos());
+        assertEquals(0L, histogram.getMaxNanos());
+        assertEquals(0L, histogram.getPercentileNanos(50));
+    }
+}
@@ -0,0 +1,123 @@
+package minhcrafters.pyfabric.python;
+
+import org.graalvm.polyglot.Engine;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextPoolTest {
+    private static Engine engine;
+    private ContextPool pool;
+
+    @BeforeAll
+    static void createEngine() {
+        engine = Engine.newBuilder("python")
+                .allowExperimentalOptions(true)
+                .option("engine.WarnInterpreterOnly", "false")
+                .build();
+    }
+
+    @AfterAll
+    static void closeEngine() {
+        engine.close(true);
+    }
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void createsUpToMaxSizeAndReusesReleasedContexts() throws InterruptedException {
+        pool = new ContextPool(engine, 2, 0, context -> {
+        });
+        PooledContext first = pool.acquire();
+        PooledContext second = pool.acquire();
+        assertNotSame(first, second);
+        assertEquals(2, pool.getCreatedCount());
+        assertEquals(0, pool.getIdleCount());
+
+        pool.release(first);
+        assertEquals(1, pool.getIdleCount());
+        assertSame(first, pool.acquire());
+        assertEquals(2, pool.getCreatedCount());
+    }
+
+    @Test
+    void initializerRunsOnEveryNewContext() throws InterruptedException {
+        pool = new ContextPool(engine, 2, 0, context -> context.eval("python", "initialized = 42"));
+        PooledContext first = pool.acquire();
+        PooledContext second = pool.acquire();
+        assertEquals(42, first.getContext().getBindings("python").getMember("initialized").asInt());
+        assertEquals(42, second.getContext().getBindings("python").getMember("initialized").asInt());
+    }
+
+    @Test
+    void blockedAcquireGetsTheReleasedContext() throws Exception {
+        pool = new ContextPool(engine, 1, 0, context -> {
+        });
+        PooledContext only = pool.acquire();
+        CompletableFuture<PooledContext> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.acquire();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThrows(TimeoutException.class, () -> waiting.get(200, TimeUnit.MILLISECONDS));
+
+        pool.release(only);
+        assertSame(only, waiting.get(10, TimeUnit.SECONDS));
+        assertEquals(1, pool.getCreatedCount());
+    }
+
+    @Test
+    void discardClosesTheContextAndFreesItsSlot() throws InterruptedException {
+        pool = new ContextPool(engine, 1, 0, context -> {
+        });
+        PooledContext discarded = pool.acquire();
+        pool.discard(discarded);
+        assertEquals(0, pool.getCreatedCount());
+        assertThrows(IllegalStateException.class, () -> discarded.getContext().eval("python", "1"));
+
+        PooledContext replacement = pool.acquire();
+        assertNotSame(discarded, replacement);
+        assertNotEquals(discarded.getId(), replacement.getId());
+        assertEquals(1, pool.getCreatedCount());
+    }
+
+    @Test
+    void detachedContextStaysOpenAfterPoolCloses() throws InterruptedException {
+        pool = new ContextPool(engine, 1, 0, context -> {
+        });
+        PooledContext detached = pool.acquire();
+        pool.detach(detached);
+        assertEquals(0, pool.getCreatedCount());
+
+        PooledContext replacement = pool.acquire();
+        assertNotSame(detached, replacement);
+        pool.close();
+        pool = null;
+
+        assertEquals(2, detached.getContext().eval("python", "1 + 1").asInt());
+        assertThrows(IllegalStateException.class, () -> replacement.getContext().eval("python", "1"));
+        detached.getContext().close(true);
+    }
+
+    @Test
+    void closedPoolRefusesAcquire() {
+        pool = new ContextPool(engine, 1, 0, context -> {
+        });
+        pool.close();
+        assertThrows(IllegalStateException.class, pool::acquire);
+    }
+}
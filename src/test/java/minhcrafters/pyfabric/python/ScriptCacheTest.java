@@ -0,0 +1,103 @@
+package minhcrafters.pyfabric.python;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptCacheTest {
+    // Unparsed entries are estimated at two bytes per character.
+    private static final int SCRIPT_CHARS = 100;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void hitsReuseTheCachedEntry() throws IOException {
+        ScriptCache cache = new ScriptCache(10_000);
+        Path script = script("a.py");
+        CachedScript first = cache.get(script);
+        assertSame(first, cache.get(script));
+        assertEquals(1L, cache.getSourceMisses());
+        assertEquals(1L, cache.getSourceHits());
+        assertEquals(2L * SCRIPT_CHARS, cache.getTotalBytes());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() throws IOException {
+        ScriptCache cache = new ScriptCache(5L * SCRIPT_CHARS);
+        Path a = script("a.py");
+        Path b = script("b.py");
+        Path c = script("c.py");
+        CachedScript cachedA = cache.get(a);
+        cache.get(b);
+        cache.get(a);
+        cache.get(c);
+
+        assertEquals(2, cache.size());
+        assertEquals(1L, cache.getEvictions());
+        assertSame(cachedA, cache.get(a));
+        cache.get(b);
+        assertEquals(4L, cache.getSourceMisses());
+    }
+
+    @Test
+    void keepsAnEntryLargerThanTheLimit() throws IOException {
+        ScriptCache cache = new ScriptCache(10);
+        Path script = script("big.py");
+        CachedScript cached = cache.get(script);
+        assertEquals(1, cache.size());
+        assertSame(cached, cache.get(script));
+    }
+
+    @Test
+    void reloadsChangedFiles() throws IOException {
+        ScriptCache cache = new ScriptCache(10_000);
+        Path script = script("a.py");
+        CachedScript first = cache.get(script);
+        Files.writeString(script, "y = 2\n");
+        Files.setLastModifiedTime(script, FileTime.fromMillis(Files.getLastModifiedTime(script).toMillis() + 1000));
+
+        CachedScript second = cache.get(script);
+        assertNotSame(first, second);
+        assertEquals("y = 2\n", second.getSource().getCharacters().toString());
+        assertEquals(1, cache.size());
+    }
+
+    // The catalogue's metadata may predate a save its watcher has not processed yet.
+    @Test
+    void staleCatalogueEntryStillSeesTheEdit() throws IOException {
+        ScriptCache cache = new ScriptCache(10_000);
+        Path script = script("a.py").toRealPath();
+        ScriptCatalogue.Entry entry = new ScriptCatalogue.Entry("a.py", script,
+                Files.getLastModifiedTime(script).toMillis(), Files.size(script));
+        CachedScript first = cache.get(entry);
+        Files.writeString(script, "y = 2\n");
+        Files.setLastModifiedTime(script, FileTime.fromMillis(entry.lastModified() + 1000));
+
+        CachedScript second = cache.get(entry);
+        assertNotSame(first, second);
+        assertEquals("y = 2\n", second.getSource().getCharacters().toString());
+    }
+
+    @Test
+    void invalidateDropsTheEntry() throws IOException {
+        ScriptCache cache = new ScriptCache(10_000);
+        Path script = script("a.py");
+        CachedScript first = cache.get(script);
+        cache.invalidate(script.toRealPath());
+        assertEquals(0, cache.size());
+        assertNotSame(first, cache.get(script));
+    }
+
+    private Path script(String name) throws IOException {
+        Path path = directory.resolve(name);
+        Files.writeString(path, "#".repeat(SCRIPT_CHARS - 1) + "\n");
+        return path;
+    }
+}
@@ -0,0 +1,26 @@
+package minhcrafters.pyfabric.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptSocketEndpointTest {
+    @Test
+    void scriptThatRanToTheEndIsOk() {
+        assertEquals(ScriptSocketEndpoint.STATUS_OK, ScriptSocketEndpoint.statusOf(true, null));
+    }
+
+    // The interpreter completes a run that raised (or was stopped) normally with false.
+    @Test
+    void scriptThatRaisedFails() {
+        assertEquals(ScriptSocketEndpoint.STATUS_FAILED, ScriptSocketEndpoint.statusOf(false, null));
+    }
+
+    @Test
+    void scriptThatCouldNotStartFails() {
+        assertEquals(ScriptSocketEndpoint.STATUS_FAILED,
+                ScriptSocketEndpoint.statusOf(null, new CompletionException(new IllegalStateException("not available"))));
+    }
+}
@@ -0,0 +1,123 @@
+package minhcrafters.pyfabric.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptStoreTest {
+    private static final int CAPACITY = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void valuesSurviveReopen() {
+        ScriptStore store = ScriptStore.open(directory, CAPACITY);
+        store.put("name", "Steve");
+        store.put("ratio", 0.5);
+        store.put("enabled", true);
+        assertEquals(3L, store.incr("visits", 3));
+        store.put("gone", 1L);
+        assertTrue(store.remove("gone"));
+        assertTrue(store.compareAndSet("visits", 3L, 4L));
+        assertFalse(store.compareAndSet("visits", 3L, 5L));
+        store.close();
+
+        ScriptStore reopened = ScriptStore.open(directory, CAPACITY);
+        assertEquals("Steve", reopened.get("name"));
+        assertEquals(0.5, reopened.get("ratio"));
+        assertEquals(true, reopened.get("enabled"));
+        assertEquals(4L, reopened.get("visits"));
+        assertFalse(reopened.contains("gone"));
+        assertEquals(List.of("enabled", "name", "ratio", "visits"), reopened.keys(null));
+        reopened.close();
+    }
+
+    // Far more updates than the initial log holds, so the store has to compact (and grow) on the way.
+    @Test
+    void compactionKeepsLatestValues() throws IOException {
+        ScriptStore store = ScriptStore.open(directory, CAPACITY);
+        for (int i = 0; i < 5000; i++) {
+            store.put("key" + (i % 50), (long) i);
+        }
+        store.put("text", "x".repeat(3000));
+        assertTrue(store.getGeneration() > 1L);
+        store.close();
+
+        ScriptStore reopened = ScriptStore.open(directory, CAPACITY);
+        assertEquals(51, reopened.size());
+        for (int k = 0; k < 50; k++) {
+            assertEquals((long) (4950 + k), reopened.get("key" + k));
+        }
+        assertEquals("x".repeat(3000), reopened.get("text"));
+        assertEquals(1, logFiles().size());
+        reopened.close();
+    }
+
+    @Test
+    void concurrentIncrementsAreNotLost() throws Exception {
+        int threads = 8;
+        int perThread = 2000;
+        ScriptStore store = ScriptStore.open(directory, CAPACITY);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    store.incr("counter", 1);
+                }
+            });
+            workers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : workers) {
+            thread.join();
+        }
+        assertEquals((long) threads * perThread, store.get("counter"));
+        store.close();
+
+        ScriptStore reopened = ScriptStore.open(directory, CAPACITY);
+        assertEquals((long) threads * perThread, reopened.get("counter"));
+        reopened.close();
+    }
+
+    // A newer generation without a valid header is a compaction that never committed.
+    @Test
+    void uncommittedGenerationFallsBack() throws IOException {
+        ScriptStore store = ScriptStore.open(directory, CAPACITY);
+        store.put("a", 1L);
+        long generation = store.getGeneration();
+        store.close();
+        Path torn = directory.resolve("store." + (generation + 1) + ".log");
+        Files.write(torn, new byte[CAPACITY]);
+
+        ScriptStore reopened = ScriptStore.open(directory, CAPACITY);
+        assertEquals(1L, reopened.get("a"));
+        assertEquals(generation, reopened.getGeneration());
+        assertFalse(Files.exists(torn));
+        reopened.close();
+    }
+
+    @Test
+    void rejectsUnsupportedValues() {
+        ScriptStore store = ScriptStore.open(directory, CAPACITY);
+        assertThrows(IllegalArgumentException.class, () -> store.put("list", List.of()));
+        assertThrows(IllegalArgumentException.class, () -> store.put("", 1L));
+        store.put("text", "abc");
+        assertThrows(IllegalStateException.class, () -> store.incr("text", 1));
+        store.close();
+    }
+
+    private List<Path> logFiles() throws IOException {
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream.filter(path -> path.getFileName().toString().endsWith(".log")).toList();
+        }
+    }
+}
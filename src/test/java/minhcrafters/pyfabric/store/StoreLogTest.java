@@ -0,0 +1,193 @@
+package minhcrafters.pyfabric.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StoreLogTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysEveryValueType() throws IOException {
+        Path path = directory.resolve("store.1.log");
+        StoreLog log = StoreLog.create(path, 1L, 4096);
+        assertTrue(log.append(key("long"), 42L));
+        assertTrue(log.append(key("double"), 2.5));
+        assertTrue(log.append(key("boolean"), true));
+        assertTrue(log.append(key("string"), "héllo"));
+        log.commit();
+        log.close();
+
+        Map<String, Object> values = replay(path, 4096);
+        assertEquals(Map.of("long", 42L, "double", 2.5, "boolean", true, "string", "héllo"), values);
+    }
+
+    @Test
+    void laterRecordsWinAndRemovalsReplay() throws IOException {
+        Path path = directory.resolve("store.1.log");
+        StoreLog log = StoreLog.create(path, 1L, 4096);
+        log.append(key("a"), 1L);
+        log.append(key("b"), 2L);
+        log.append(key("a"), 3L);
+        log.append(key("b"), null);
+        log.commit();
+        log.close();
+
+        assertEquals(Map.of("a", 3L), replay(path, 4096));
+    }
+
+    @Test
+    void reopenedLogAppendsAfterLastRecord() throws IOException {
+        Path path = directory.resolve("store.7.log");
+        StoreLog log = StoreLog.create(path, 7L, 4096);
+        log.append(key("a"), 1L);
+        log.commit();
+        log.close();
+
+        Map<String, Object> values = new HashMap<>();
+        StoreLog reopened = StoreLog.open(path, 4096, values::put);
+        assertNotNull(reopened);
+        assertEquals(7L, reopened.getGeneration());
+        assertEquals(StoreLog.HEADER_BYTES + StoreLog.recordLength(1, 1L), reopened.getUsedBytes());
+        reopened.append(key("b"), 2L);
+        reopened.commit();
+        reopened.close();
+
+        assertEquals(Map.of("a", 1L, "b", 2L), replay(path, 4096));
+    }
+
+    @Test
+    void uncommittedLogIsRejected() throws IOException {
+        Path path = directory.resolve("store.2.log");
+        StoreLog log = StoreLog.create(path, 2L, 4096);
+        log.append(key("a"), 1L);
+        log.force();
+        log.close();
+
+        assertNull(StoreLog.open(path, 4096, (k, v) -> fail("replayed " + k)));
+    }
+
+    @Test
+    void openGrowsToMinimumCapacity() throws IOException {
+        Path path = directory.resolve("store.1.log");
+        StoreLog log = StoreLog.create(path, 1L, 256);
+        log.commit();
+        log.close();
+
+        StoreLog reopened = StoreLog.open(path, 8192, (k, v) -> {
+        });
+        assertNotNull(reopened);
+        assertEquals(8192, reopened.getCapacity());
+        reopened.close();
+    }
+
+    @Test
+    void appendFailsWhenFull() throws IOException {
+        int recordLength = StoreLog.recordLength(1, 1L);
+        StoreLog log = StoreLog.create(directory.resolve("store.1.log"), 1L, StoreLog.HEADER_BYTES + 2 * recordLength);
+        assertTrue(log.append(key("a"), 1L));
+        assertTrue(log.append(key("b"), 2L));
+        assertFalse(log.append(key("c"), 3L));
+        assertFalse(log.append(key("d"), 4L));
+        assertEquals(log.getCapacity(), log.getUsedBytes());
+        log.close();
+    }
+
+    // A torn record stops replay; the records after it must not come back once new appends line up with them.
+    @Test
+    void recordsBehindTornRecordStayDead() throws IOException {
+        Path path = directory.resolve("store.1.log");
+        StoreLog log = StoreLog.create(path, 1L, 4096);
+        log.append(key("k1"), 1L);
+        log.append(key("k2"), 2L);
+        log.append(key("k3"), 3L);
+        log.commit();
+        log.close();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4), StoreLog.HEADER_BYTES + StoreLog.recordLength(2, 1L));
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        StoreLog reopened = StoreLog.open(path, 4096, values::put);
+        assertNotNull(reopened);
+        assertEquals(Map.of("k1", 1L), values);
+        // Same length as the torn k2 record, so it ends exactly where k3 starts.
+        reopened.append(key("k4"), 4L);
+        reopened.commit();
+        reopened.close();
+
+        assertEquals(Map.of("k1", 1L, "k4", 4L), replay(path, 4096));
+    }
+
+    @Test
+    void concurrentAppendsAllReplay() throws Exception {
+        Path path = directory.resolve("store.1.log");
+        int threads = 8;
+        int perThread = 500;
+        StoreLog log = StoreLog.create(path, 1L, 1 << 20);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int writer = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    assertTrue(log.append(key(writer + ":" + i), (long) i));
+                }
+            });
+            writers.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : writers) {
+            thread.join();
+        }
+        log.commit();
+        log.close();
+
+        Map<String, Object> values = replay(path, 1 << 20);
+        assertEquals(threads * perThread, values.size());
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                assertEquals((long) i, values.get(t + ":" + i));
+            }
+        }
+    }
+
+    private static byte[] key(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, Object> replay(Path path, int minCapacity) throws IOException {
+        Map<String, Object> values = new HashMap<>();
+        StoreLog log = StoreLog.open(path, minCapacity, (key, value) -> {
+            if (value == null) {
+                values.remove(key);
+            } else {
+                values.put(key, value);
+            }
+        });
+        assertNotNull(log);
+        log.close();
+        return values;
+    }
+}